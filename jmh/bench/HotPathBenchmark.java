@@ -0,0 +1,337 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import logic.DataManager;
+import logic.Occupancy;
+import logic.ParkingLot;
+import logic.ParkingSpot;
+import logic.Ticket;
+import logic.Vehicle;
+import logic.VehicleType;
+
+/**
+ * Benchmark các đường nóng của ParkingLot và DataManager: xe vào/ra, các hàm
+ * tra cứu get*By*, danh sách vé đang hoạt động, đọc/ghi file. Chạy trên mọi tổ
+ * hợp tham số số xe x số chỗ x số vé lịch sử (1e3 -> 1e7) để thấy ngay thay đổi
+ * nào làm chậm đường nóng. Bộ dữ liệu (Fixture) được dựng trong thư mục tạm
+ * cho mỗi tổ hợp và bị xóa khi xong.
+ *
+ * Chạy: mvn -Pjmh package
+ *       java -jar target/benchmarks.jar HotPathBenchmark -p vehicles=1000,100000 -p spots=1000
+ *       -p history=1000,1000000 [-prof gc]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HotPathBenchmark {
+    // Số mẫu tra cứu (xoay vòng trong lúc đo)
+    private static final int SAMPLES = 1 << 14;
+    private static final int MASK = SAMPLES - 1;
+    // Số xe vào/ra trong một lần gọi của phép đo cổng
+    private static final int GATE_BATCH = 256;
+
+    /**
+     * Bộ dữ liệu trên đĩa cho một tổ hợp tham số, dựng một lần cho mỗi lượt
+     * chạy. Lớp con mở thêm những gì phép đo của mình cần (open/close).
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Data {
+        @Param({ "1000", "100000", "10000000" })
+        public int vehicles;
+        @Param({ "1000", "100000", "10000000" })
+        public int spots;
+        @Param({ "1000", "100000", "10000000" })
+        public int history;
+
+        Fixture fixture;
+        DataManager dataManager;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            fixture = Fixture.create(vehicles, spots, history);
+            dataManager = new DataManager(fixture.dir.getPath());
+            open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try {
+                close();
+            } finally {
+                fixture.delete();
+            }
+        }
+
+        abstract void open() throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    /**
+     * ParkingLot đã nạp cùng các mẫu tra cứu: biển số/tên chủ xe rải đều, biển
+     * số xe đang đỗ, mã chỗ, mã vé.
+     */
+    public static class Lookup extends Data {
+        ParkingLot lot;
+        final String[] plates = new String[SAMPLES];
+        final String[] ownerPrefixes = new String[SAMPLES];
+        final String[] owners = new String[SAMPLES];
+        final String[] parkedPlates = new String[SAMPLES];
+        final int[] spotIDs = new int[SAMPLES];
+        final int[] ticketIDs = new int[SAMPLES];
+        private int next;
+
+        @Override
+        void open() throws IOException {
+            lot = new ParkingLot(dataManager);
+            int lastTicketID = history + fixture.activeCount;
+            for (int k = 0; k < SAMPLES; k++) {
+                int i = (int) ((k * 2_654_435_761L) % Math.max(1, vehicles));
+                plates[k] = Fixture.plate(i);
+                owners[k] = Fixture.ownerName(i);
+                ownerPrefixes[k] = owners[k].substring(0, 9);
+                parkedPlates[k] = Fixture.plate(fixture.activeCount == 0 ? 0 : k % fixture.activeCount);
+                spotIDs[k] = spots == 0 ? 0 : (int) ((k * 40_503L) % spots) + 1;
+                ticketIDs[k] = lastTicketID == 0 ? 0 : (int) ((k * 2_654_435_761L) % lastTicketID) + 1;
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            lot.close();
+        }
+
+        // Chỉ số mẫu tiếp theo
+        int next() {
+            return next++ & MASK;
+        }
+    }
+
+    /**
+     * ParkingLot đã nạp cùng GATE_BATCH xe chưa đỗ dùng cho phép đo vào/ra.
+     */
+    public abstract static class Gate extends Data {
+        ParkingLot lot;
+        final String[] batch = new String[GATE_BATCH];
+
+        @Override
+        void open() throws IOException {
+            int free = Math.min(vehicles, spots) - fixture.activeCount - VehicleType.values().length;
+            if (free < GATE_BATCH)
+                throw new IllegalStateException("Cần ít nhất " + GATE_BATCH + " xe chưa đỗ và chỗ trống, chỉ có "
+                        + free);
+            lot = new ParkingLot(dataManager);
+            for (int k = 0; k < GATE_BATCH; k++)
+                batch[k] = Fixture.plate(fixture.activeCount + k);
+        }
+
+        @Override
+        void close() throws IOException {
+            lot.close();
+        }
+    }
+
+    // Trước mỗi lần gọi: các xe của lô đều đã ra (không tính giờ)
+    public static class ParkGate extends Gate {
+        @Setup(Level.Invocation)
+        public void retrieveBatch() {
+            for (String plate : batch)
+                lot.retrieveVehicle(plate);
+        }
+    }
+
+    // Trước mỗi lần gọi: các xe của lô đều đang đỗ (không tính giờ)
+    public static class RetrieveGate extends Gate {
+        @Setup(Level.Invocation)
+        public void parkBatch() {
+            for (String plate : batch)
+                lot.parkVehicleAuto(plate);
+        }
+    }
+
+    /**
+     * Đọc/ghi file trên bộ dữ liệu, không mở ParkingLot. Phép đo lưu ghi vào
+     * một thư mục tạm riêng.
+     */
+    public static class FileIO extends Data {
+        ArrayList<Vehicle> vehicleList;
+        ArrayList<ParkingSpot> spotList;
+        ArrayList<Ticket> ticketList;
+        File saveDir;
+        DataManager saver;
+
+        @Override
+        void open() throws IOException {
+            vehicleList = dataManager.loadVehicles();
+            spotList = dataManager.loadSpots();
+            ticketList = dataManager.loadTickets();
+            saveDir = Bench.tempDir("parking-save");
+            saver = new DataManager(saveDir.getPath());
+        }
+
+        @Override
+        void close() {
+            Bench.deleteDir(saveDir);
+        }
+    }
+
+    // --- Xe vào/ra ---
+
+    @Benchmark
+    @OperationsPerInvocation(GATE_BATCH)
+    public int parkVehicleAuto(ParkGate s) {
+        int parked = 0;
+        for (String plate : s.batch) {
+            if (s.lot.parkVehicleAuto(plate))
+                parked++;
+        }
+        return parked;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GATE_BATCH)
+    public int retrieveVehicle(RetrieveGate s) {
+        int retrieved = 0;
+        for (String plate : s.batch) {
+            if (s.lot.retrieveVehicle(plate))
+                retrieved++;
+        }
+        return retrieved;
+    }
+
+    // --- Tra cứu ---
+
+    @Benchmark
+    public Vehicle getVehicleByLicensePlate(Lookup s) {
+        return s.lot.getVehicleByLicensePlate(s.plates[s.next()]);
+    }
+
+    @Benchmark
+    public Object getVehicleByOwnerName(Lookup s) {
+        return s.lot.getVehicleByOwnerName(s.owners[s.next()]);
+    }
+
+    @Benchmark
+    public Object searchVehiclesByOwnerName(Lookup s) {
+        return s.lot.searchVehiclesByOwnerName(s.ownerPrefixes[s.next()]);
+    }
+
+    @Benchmark
+    public ParkingSpot getSpotBySpotID(Lookup s) {
+        return s.lot.getSpotBySpotID(s.spotIDs[s.next()]);
+    }
+
+    @Benchmark
+    public ParkingSpot getSpotByLicensePlate(Lookup s) {
+        return s.lot.getSpotByLicensePlate(s.parkedPlates[s.next()]);
+    }
+
+    @Benchmark
+    public Object getSpotByAllowedVehicle(Lookup s) {
+        return s.lot.getSpotByAllowedVehicle(Fixture.type(s.next()));
+    }
+
+    @Benchmark
+    public Object getSpotsByOccupancy(Lookup s) {
+        return s.lot.getSpotsByOccupancy((s.next() & 1) == 0);
+    }
+
+    @Benchmark
+    public int getFreeSpotCount(Lookup s) {
+        return s.lot.getFreeSpotCount(Fixture.type(s.next()));
+    }
+
+    @Benchmark
+    public Occupancy getOccupancy(Lookup s) {
+        return s.lot.getOccupancy();
+    }
+
+    @Benchmark
+    public Ticket getTicketByTicketID(Lookup s) {
+        return s.lot.getTicketByTicketID(s.ticketIDs[s.next()]);
+    }
+
+    @Benchmark
+    public Ticket getTicketByLicensePlate(Lookup s) {
+        return s.lot.getTicketByLicensePlate(s.plates[s.next()]);
+    }
+
+    @Benchmark
+    public Object getActiveTicket(Lookup s) {
+        return s.lot.getActiveTicket();
+    }
+
+    @Benchmark
+    public void getActiveTicketView(Lookup s, Blackhole bh) {
+        Collection<Ticket> view = s.lot.getActiveTicketView();
+        for (Ticket t : view)
+            bh.consume(t.getSpotID());
+    }
+
+    @Benchmark
+    public Object getUsedTicket(Lookup s) {
+        return s.lot.getUsedTicket();
+    }
+
+    // Trang đầu của bảng vé trên giao diện
+    @Benchmark
+    public Object getTicketsBeforeFirstPage(Lookup s) {
+        return s.lot.getTicketsBefore(Integer.MAX_VALUE, 200, null);
+    }
+
+    // --- Đọc/ghi file ---
+
+    @Benchmark
+    public Object loadVehicles(FileIO s) throws IOException {
+        return s.dataManager.loadVehicles();
+    }
+
+    @Benchmark
+    public Object loadSpots(FileIO s) throws IOException {
+        return s.dataManager.loadSpots();
+    }
+
+    @Benchmark
+    public Object loadTickets(FileIO s) throws IOException {
+        return s.dataManager.loadTickets();
+    }
+
+    @Benchmark
+    public void saveData(FileIO s) throws IOException {
+        s.saver.saveData(s.vehicleList, s.spotList, s.ticketList);
+    }
+
+    // Khởi động: nạp các file và dựng chỉ mục
+    @Benchmark
+    public int openParkingLot(FileIO s) throws IOException {
+        ParkingLot lot = new ParkingLot(s.dataManager);
+        try {
+            return lot.getActiveTicketCount();
+        } finally {
+            lot.close();
+        }
+    }
+}
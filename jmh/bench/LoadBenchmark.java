@@ -0,0 +1,205 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import logic.DataManager;
+import logic.ParkingSpot;
+import logic.Ticket;
+import logic.Vehicle;
+import logic.VehicleType;
+
+/**
+ * Đo thời gian nạp file của DataManager trên file nhiều triệu dòng, đối chiếu
+ * với cách đọc cũ (BufferedReader.readLine + split(",") + trim). Áp lực GC (số
+ * byte cấp phát, số lần và thời gian GC mỗi lần nạp) xem bằng -prof gc. Kết
+ * quả của 2 cách đọc được so khớp trước khi đo.
+ *
+ * Chạy: mvn -Pjmh package
+ *       java -jar target/benchmarks.jar LoadBenchmark -p tickets=2000000 [-p dir=data-big] -prof gc
+ * Không có dir thì sinh dữ liệu (DatasetGenerator) vào thư mục tạm, xóa khi xong.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    @Param({ "" })
+    public String dir;
+    @Param({ "1000000" })
+    public int vehicles;
+    @Param({ "10000" })
+    public int spots;
+    @Param({ "1000", "1000000", "10000000" })
+    public long tickets;
+
+    private File data;
+    private boolean generated;
+    private DataManager dataManager;
+    private File vehicleFile;
+    private File spotFile;
+    private File ticketFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generated = dir.isEmpty();
+        if (generated) {
+            data = Bench.tempDir("parking-load");
+            new DatasetGenerator(data, vehicles, spots, tickets, 3, 0.6, 42).generate();
+        } else {
+            data = new File(dir);
+        }
+        dataManager = new DataManager(data.getPath());
+        vehicleFile = new File(data, "vehicles.csv");
+        spotFile = new File(data, "spots.csv");
+        ticketFile = new File(data, "tickets.csv");
+
+        check("vehicles", readLineVehicles(vehicleFile), dataManager.loadVehicles());
+        check("spots", readLineSpots(spotFile), dataManager.loadSpots());
+        check("tickets", readLineTickets(ticketFile), dataManager.loadTickets());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (generated)
+            Bench.deleteDir(data);
+    }
+
+    @Benchmark
+    public Object vehiclesReadLine() throws IOException {
+        return readLineVehicles(vehicleFile);
+    }
+
+    @Benchmark
+    public Object vehiclesDataManager() throws IOException {
+        return dataManager.loadVehicles();
+    }
+
+    @Benchmark
+    public Object spotsReadLine() throws IOException {
+        return readLineSpots(spotFile);
+    }
+
+    @Benchmark
+    public Object spotsDataManager() throws IOException {
+        return dataManager.loadSpots();
+    }
+
+    @Benchmark
+    public Object ticketsReadLine() throws IOException {
+        return readLineTickets(ticketFile);
+    }
+
+    @Benchmark
+    public Object ticketsDataManager() throws IOException {
+        return dataManager.loadTickets();
+    }
+
+    // 2 cách đọc phải cho ra cùng một danh sách
+    private static void check(String name, List<?> expected, List<?> actual) {
+        if (expected.size() != actual.size())
+            throw new IllegalStateException(name + ": " + expected.size() + " != " + actual.size() + " dòng");
+        for (int i = 0; i < expected.size(); i++) {
+            if (!describe(expected.get(i)).equals(describe(actual.get(i))))
+                throw new IllegalStateException(name + " dòng " + i + ": " + describe(expected.get(i)) + " != "
+                        + describe(actual.get(i)));
+        }
+    }
+
+    private static String describe(Object o) {
+        if (o instanceof Vehicle) {
+            Vehicle v = (Vehicle) o;
+            return v.getLicensePlate() + "|" + v.getType() + "|" + v.getOwnerName() + "|" + v.getOwnerPhone();
+        }
+        if (o instanceof ParkingSpot) {
+            ParkingSpot s = (ParkingSpot) o;
+            return s.getSpotID() + "|" + s.getAllowedType() + "|" + s.getLicensePlate() + "|" + s.isOccupied();
+        }
+        Ticket t = (Ticket) o;
+        return t.getTicketID() + "|" + t.getSpotID() + "|" + t.getLicensePlate() + "|" + t.getEntryTime() + "|"
+                + t.getExitTime();
+    }
+
+    // --- Cách đọc cũ, giữ lại để đối chiếu ---
+
+    private static ArrayList<Vehicle> readLineVehicles(File file) throws IOException {
+        ArrayList<Vehicle> list = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                String[] parts = line.split(",");
+                if (parts.length >= 4)
+                    list.add(new Vehicle(parts[0].trim(), VehicleType.valueOf(parts[1].trim()), parts[2].trim(),
+                            parts[3].trim()));
+            }
+        }
+        return list;
+    }
+
+    private static ArrayList<ParkingSpot> readLineSpots(File file) throws IOException {
+        ArrayList<ParkingSpot> list = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                String[] parts = line.split(",");
+                if (parts.length >= 4) {
+                    String plate = parts[2].trim();
+                    list.add(new ParkingSpot(Integer.parseInt(parts[0].trim()), VehicleType.valueOf(parts[1].trim()),
+                            plate.equals("null") ? null : plate, Boolean.parseBoolean(parts[3].trim())));
+                }
+            }
+        }
+        return list;
+    }
+
+    private static ArrayList<Ticket> readLineTickets(File file) throws IOException {
+        ArrayList<Ticket> list = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                String[] parts = line.split(",");
+                if (parts.length >= 5) {
+                    try {
+                        String entry = parts[3].trim();
+                        String exit = parts[4].trim();
+                        list.add(new Ticket(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts[2],
+                                entry.equals("null") ? null : LocalDateTime.parse(entry),
+                                exit.equals("null") ? null : LocalDateTime.parse(exit)));
+                    } catch (NumberFormatException | DateTimeParseException e) {
+                        // dòng hỏng
+                    }
+                }
+            }
+        }
+        return list;
+    }
+}
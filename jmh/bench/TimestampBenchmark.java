@@ -0,0 +1,96 @@
+package bench;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import logic.TimestampCodec;
+
+/**
+ * So sánh TimestampCodec với bộ định dạng của JDK (LocalDateTime.parse /
+ * toString) trên giờ vào/ra đúng dạng DataManager ghi: giờ tròn phút (dữ liệu
+ * sinh/nhập tay), có giây, và có phần lẻ nano giây (giờ lấy từ đồng hồ hệ thống).
+ * Kèm theo chuyển đổi sang dạng số giây/nano giây dùng cho file nhị phân và
+ * tầng lạnh.
+ *
+ * Chạy: mvn -Pjmh package
+ *       java -jar target/benchmarks.jar TimestampBenchmark [-p precision=nano]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TimestampBenchmark {
+    private static final int SAMPLES = 1 << 12;
+    private static final int MASK = SAMPLES - 1;
+
+    // Độ chính xác của giờ mẫu: tròn phút, có giây, có phần lẻ nano giây
+    @Param({ "minute", "second", "nano" })
+    public String precision;
+
+    private final LocalDateTime[] times = new LocalDateTime[SAMPLES];
+    private final String[] texts = new String[SAMPLES];
+    private final long[] nanos = new long[SAMPLES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            LocalDateTime time = LocalDateTime.of(2020 + random.nextInt(6), 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            if (precision.equals("second"))
+                time = time.withSecond(1 + random.nextInt(59));
+            else if (precision.equals("nano"))
+                time = time.withSecond(random.nextInt(60)).withNano(1 + random.nextInt(999_999_999));
+            times[i] = time;
+            texts[i] = time.toString();
+            nanos[i] = TimestampCodec.toEpochNano(time);
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime parseJdk() {
+        return LocalDateTime.parse(texts[next++ & MASK]);
+    }
+
+    @Benchmark
+    public LocalDateTime parseTimestampCodec() {
+        return TimestampCodec.parse(texts[next++ & MASK]);
+    }
+
+    @Benchmark
+    public String formatJdk() {
+        return times[next++ & MASK].toString();
+    }
+
+    @Benchmark
+    public String formatTimestampCodec() {
+        return TimestampCodec.format(times[next++ & MASK]);
+    }
+
+    @Benchmark
+    public long toEpochNano() {
+        return TimestampCodec.toEpochNano(times[next++ & MASK]);
+    }
+
+    @Benchmark
+    public LocalDateTime fromEpochNano() {
+        return TimestampCodec.fromEpochNano(nanos[next++ & MASK]);
+    }
+}
@@ -1,8 +1,14 @@
 import gui.MainFrame;
+import java.util.Arrays;
 import javax.swing.SwingUtilities;
 
 public class App {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // --headless: chạy engine không giao diện (xem HeadlessApp)
+        if (args.length > 0 && args[0].equals("--headless")) {
+            HeadlessApp.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             new MainFrame().setVisible(true);
         });
@@ -0,0 +1,64 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import logic.DataManager;
+import logic.DataManager.TicketFormat;
+import logic.Ticket;
+
+/**
+ * Chuyển file vé giữa định dạng CSV (tickets.csv) và nhị phân (tickets.bin +
+ * tickets.plates). File cũ được đổi tên thành *.bak. Nên chạy khi chương trình
+ * đã tắt (vừa lưu xong, nhật ký rỗng).
+ *
+ * Chạy: java -cp bin ConvertTickets [thư mục dữ liệu] [bin|csv|plain]
+ *
+ * plain: ghi mọi vé (kể cả các phân đoạn tháng) vào tickets.csv đúng dạng
+ * Ticket.toString, không đệm cột giờ ra, để quay về bản cũ hoặc đọc bằng công
+ * cụ khác. Các phân đoạn tháng bị xóa vì vé của chúng đã nằm trong file.
+ *
+ * Lưu ý: định dạng nhị phân chỉ giữ giờ đến từng giây.
+ */
+public class ConvertTickets {
+    public static void main(String[] args) throws IOException {
+        String dataDir = args.length > 0 ? args[0] : "data";
+        boolean plain = args.length > 1 && args[1].equalsIgnoreCase("plain");
+        TicketFormat target = plain || args.length > 1 && args[1].equalsIgnoreCase("csv") ? TicketFormat.CSV
+                : TicketFormat.BINARY;
+
+        DataManager dataManager = new DataManager(dataDir);
+        TicketFormat source = dataManager.getTicketFormat();
+        if (source == target && !plain) {
+            System.out.println("Dữ liệu đã ở định dạng " + target);
+            return;
+        }
+        File sourceFile = new File(dataManager.getTicketFile());
+        File backup = new File(sourceFile.getPath() + ".bak");
+        long begin = System.nanoTime();
+        ArrayList<Ticket> tickets = dataManager.loadTickets();
+        long loadNanos = System.nanoTime() - begin;
+
+        dataManager.setTicketFormat(target);
+        dataManager.setPadOpenTickets(!plain);
+        File targetFile = new File(dataManager.getTicketFile());
+        boolean sameFile = targetFile.equals(sourceFile);
+        if (sameFile && sourceFile.exists())
+            Files.copy(sourceFile.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        dataManager.saveTickets(tickets);
+        if (!sameFile && sourceFile.exists() && !sourceFile.renameTo(backup))
+            throw new IOException("Không đổi tên được " + sourceFile);
+
+        begin = System.nanoTime();
+        int loaded = new DataManager(dataDir).loadTickets().size();
+        long reloadNanos = System.nanoTime() - begin;
+
+        System.out.printf("Đã chuyển %d vé: %s -> %s%n", tickets.size(), source, plain ? "CSV (plain)" : target);
+        System.out.printf("  %s: %,d byte, nạp trong %.0f ms%n", sourceFile.getName(), backup.length(),
+                loadNanos / 1e6);
+        System.out.printf("  %s: %,d byte, nạp trong %.0f ms (%d vé)%n", targetFile.getName(), targetFile.length(),
+                reloadNanos / 1e6, loaded);
+        System.out.println("  File cũ giữ lại ở " + backup.getName());
+    }
+}
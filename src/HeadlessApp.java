@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import logic.DataManager;
+import logic.GateEvent;
+import logic.GateResult;
+import logic.Occupancy;
+import logic.ParkingEngine;
+import logic.ParkingLot;
+import logic.SnapshotScheduler;
+import logic.VehicleType;
+
+/**
+ * Chạy bãi xe không có giao diện (không nạp AWT/Swing), nhận lệnh từ stdin.
+ *
+ * Chạy: java -cp bin HeadlessApp [thư mục dữ liệu] [số giây giữa 2 lần lưu]
+ * hoặc: java -cp bin App --headless [thư mục dữ liệu] [số giây giữa 2 lần lưu]
+ */
+public class HeadlessApp {
+    private static final String HELP = String.join(System.lineSeparator(),
+            "Lệnh:",
+            "  in <biển số>                        cho xe vào",
+            "  out <biển số>                       cho xe ra",
+            "  replay <file>                       xử lý theo loạt các dòng 'in|out <biển số>' trong file",
+            "  vehicle <biển số> <loại> <SĐT> <họ tên>  đăng ký xe",
+            "  spots <loại> <số lượng>             thêm chỗ đỗ",
+            "  status                              thống kê nhanh",
+            "  save                                lưu dữ liệu ngay",
+            "  quit                                lưu và thoát");
+    // Lỗi ghi nhật ký đã báo (xem reportJournal)
+    private static IOException reportedJournalFailure;
+    // Số lần lưu lỗi đã báo (xem reportSaveFailures)
+    private static long reportedSaveFailures;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String dataDir = args.length > 0 ? args[0] : "data";
+        long saveSeconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+
+        ParkingEngine engine = new ParkingEngine(new DataManager(dataDir), saveSeconds);
+        long begin = System.nanoTime();
+        engine.start();
+        engine.installShutdownHook();
+        ParkingLot lot = engine.getParkingLot();
+        System.out.printf("Đã nạp dữ liệu từ '%s' trong %.0f ms (%d xe, %d chỗ, %d vé). Gõ 'help' để xem lệnh.%n",
+                dataDir, (System.nanoTime() - begin) / 1e6, lot.getVehicles().size(), lot.getOccupancy().getTotal(),
+                lot.getTicketCount());
+        if (lot.getSkippedJournalRecords() > 0)
+            System.out.println("Cảnh báo: bỏ qua " + lot.getSkippedJournalRecords() + " bản ghi nhật ký hỏng");
+        if (lot.getDuplicateOpenTickets() > 0)
+            System.out.println("Cảnh báo: bỏ qua " + lot.getDuplicateOpenTickets()
+                    + " vé chưa ra trùng biển số với vé đang hoạt động khác");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+", 5);
+            String command = parts[0].toLowerCase();
+            try {
+                if (command.isEmpty()) {
+                    continue;
+                } else if (command.equals("quit") || command.equals("exit")) {
+                    break;
+                } else if (command.equals("in") && parts.length >= 2) {
+                    System.out.println(lot.parkVehicleAuto(parts[1]) ? "OK" : "Không thể cho xe vào");
+                } else if (command.equals("out") && parts.length >= 2) {
+                    System.out.println(lot.retrieveVehicle(parts[1]) ? "OK" : "Không thể cho xe ra");
+                } else if (command.equals("replay") && parts.length >= 2) {
+                    replay(lot, parts[1]);
+                } else if (command.equals("vehicle") && parts.length == 5) {
+                    VehicleType type = VehicleType.valueOf(parts[2].toUpperCase());
+                    System.out.println(lot.addVehicle(parts[1], type, parts[4], parts[3]) ? "OK" : "Xe đã tồn tại");
+                } else if (command.equals("spots") && parts.length >= 3) {
+                    VehicleType type = VehicleType.valueOf(parts[1].toUpperCase());
+                    System.out.println("Đã thêm " + lot.addSpots(type, Integer.parseInt(parts[2])) + " chỗ");
+                } else if (command.equals("status")) {
+                    Occupancy occupancy = lot.getOccupancy();
+                    System.out.println("Xe trong bãi: " + lot.getActiveTicketCount() + " | Chỗ trống: "
+                            + occupancy.getFree() + "/" + occupancy.getTotal() + " (" + occupancy + ")");
+                    System.out.println("Lưu dữ liệu: " + engine.getSnapshotScheduler());
+                } else if (command.equals("save")) {
+                    engine.save();
+                    System.out.println("Đã lưu");
+                } else {
+                    System.out.println(HELP);
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Tham số không hợp lệ: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Lỗi: " + e.getMessage());
+            }
+            reportJournal(lot);
+            reportSaveFailures(engine.getSnapshotScheduler());
+        }
+        engine.stop();
+    }
+
+    // Báo lỗi ghi nhật ký mới (mỗi lỗi một lần)
+    private static void reportJournal(ParkingLot lot) {
+        IOException failure = lot.getJournalFailure();
+        if (failure != null && failure != reportedJournalFailure) {
+            System.out.println("Cảnh báo: lỗi ghi nhật ký (" + failure.getMessage()
+                    + "), thay đổi sẽ được ghi ở lần lưu kế tiếp");
+        }
+        reportedJournalFailure = failure;
+    }
+
+    // Báo lỗi lưu định kỳ mới từ lần báo trước
+    private static void reportSaveFailures(SnapshotScheduler scheduler) {
+        long failures = scheduler.getFailureCount();
+        if (failures != reportedSaveFailures) {
+            System.out.println("Cảnh báo: lỗi lưu dữ liệu (" + scheduler.getLastError()
+                    + "), sẽ thử lại ở lần lưu kế tiếp");
+        }
+        reportedSaveFailures = failures;
+    }
+
+    // Mỗi dòng: "in <biển số>" hoặc "out <biển số>"; dòng khác bị bỏ qua
+    private static void replay(ParkingLot lot, String file) throws IOException {
+        List<GateEvent> events = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length < 2)
+                continue;
+            if (parts[0].equalsIgnoreCase("in"))
+                events.add(GateEvent.entry(parts[1]));
+            else if (parts[0].equalsIgnoreCase("out"))
+                events.add(GateEvent.exit(parts[1]));
+        }
+        long begin = System.nanoTime();
+        List<GateResult> results = lot.processGateEvents(events);
+        int ok = 0;
+        for (GateResult result : results) {
+            if (result.isSuccess())
+                ok++;
+            else
+                System.out.println(result);
+        }
+        System.out.printf("%d/%d lượt thành công trong %.1f ms%n", ok, results.size(),
+                (System.nanoTime() - begin) / 1e6);
+    }
+}
@@ -0,0 +1,35 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Tiện ích dùng chung cho các benchmark: thư mục dữ liệu tạm. Việc đo thời
+ * gian do JMH đảm nhận (thư mục jmh/, build bằng mvn -Pjmh package); các
+ * chương trình còn lại trong gói này (tranh chấp, mô phỏng lưu lượng, sinh dữ
+ * liệu) tự in kết quả của mình.
+ */
+final class Bench {
+    private Bench() {
+    }
+
+    // Thư mục tạm mới; người gọi xóa bằng deleteDir khi dùng xong
+    static File tempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    // Xóa thư mục dữ liệu tạm cùng mọi file bên trong
+    static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory())
+                    deleteDir(f);
+                else
+                    f.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,184 @@
+package bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import logic.DataManager;
+import logic.ParkingLot;
+import logic.VehicleType;
+
+/**
+ * Benchmark tranh chấp: nhiều "cổng" (thread) cùng cho xe vào/ra một ParkingLot.
+ * In ra thông lượng (thao tác/giây) khi tăng số thread từ 1 đến 32, sau đó
+ * kiểm tra trường hợp nhiều cổng tranh nhau đúng một chỗ trống cuối cùng.
+ *
+ * Chạy: java -cp bin bench.ContentionBenchmark [seconds=2] [spots=2000]
+ * (seconds: thời gian đo mỗi mức, spots: số chỗ mỗi loại xe)
+ * Dữ liệu nằm trong thư mục tạm, không đụng tới thư mục data/ của ứng dụng.
+ */
+public class ContentionBenchmark {
+
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32 };
+
+    public static void main(String[] args) throws Exception {
+        double seconds = 2;
+        int spotsPerType = 2000;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2)
+                throw new IllegalArgumentException("Tham số phải có dạng key=value: " + arg);
+            switch (kv[0]) {
+                case "seconds":
+                    seconds = Double.parseDouble(kv[1]);
+                    break;
+                case "spots":
+                    spotsPerType = Integer.parseInt(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tham số không hỗ trợ: " + kv[0]);
+            }
+        }
+
+        System.out.println("CPU: " + Runtime.getRuntime().availableProcessors() + " | Chỗ mỗi loại: "
+                + spotsPerType + " | Thời gian mỗi mức: " + seconds + "s");
+        // Chạy nóng một lượt để JIT biên dịch xong trước khi đo
+        runLevel(4, seconds, spotsPerType, false);
+
+        System.out.printf("%8s %15s %12s%n", "threads", "ops/s", "park ok %");
+        for (int threads : THREAD_COUNTS) {
+            runLevel(threads, seconds, spotsPerType, true);
+        }
+        lastSpotRace(32);
+    }
+
+    // Mỗi thread có nhóm biển số riêng (như các làn xe riêng), xen kẽ vào/ra.
+    // Số xe gấp đôi số chỗ nên các cổng luôn phải tranh nhau chỗ trống.
+    private static void runLevel(int threads, double seconds, int spotsPerType, boolean report)
+            throws Exception {
+        File dir = Bench.tempDir("parking-bench");
+        ParkingLot lot = new ParkingLot(new DataManager(dir.getPath()));
+        try {
+            runLevel(lot, threads, seconds, spotsPerType, report);
+        } finally {
+            lot.close();
+            Bench.deleteDir(dir);
+        }
+    }
+
+    private static void runLevel(ParkingLot lot, int threads, double seconds, int spotsPerType, boolean report)
+            throws Exception {
+        VehicleType[] types = VehicleType.values();
+        for (VehicleType type : types) {
+            lot.addSpots(type, spotsPerType);
+        }
+        int vehiclesPerThread = Math.max(1, spotsPerType * types.length * 2 / threads);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < vehiclesPerThread; i++) {
+                lot.addVehicle(plate(t, i), types[i % types.length], "Bench " + t, "0900000000");
+            }
+        }
+
+        LongAdder ops = new LongAdder();
+        LongAdder parkAttempts = new LongAdder();
+        LongAdder parkOk = new LongAdder();
+        long endAt = System.nanoTime() + (long) (seconds * 1e9);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int gate = t;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                boolean[] parked = new boolean[vehiclesPerThread];
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long n = 0;
+                while ((n & 255) != 0 || System.nanoTime() < endAt) {
+                    int i = rnd.nextInt(vehiclesPerThread);
+                    if (parked[i]) {
+                        parked[i] = !lot.retrieveVehicle(plate(gate, i));
+                    } else {
+                        parkAttempts.increment();
+                        parked[i] = lot.parkVehicleAuto(plate(gate, i));
+                        if (parked[i])
+                            parkOk.increment();
+                    }
+                    n++;
+                }
+                ops.add(n);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        if (report)
+            System.out.printf("%8d %15.0f %11.1f%%%n", threads, ops.sum() / elapsed,
+                    100.0 * parkOk.sum() / Math.max(1, parkAttempts.sum()));
+    }
+
+    // Nhiều cổng cùng lúc tranh đúng một chỗ ô tô cuối cùng: phải có đúng một
+    // cổng thắng, chỗ đỗ không bao giờ bị cấp hai lần
+    private static void lastSpotRace(int threads) throws Exception {
+        int rounds = 200;
+        int violations = 0;
+        for (int round = 0; round < rounds; round++) {
+            File dir = Bench.tempDir("parking-bench");
+            ParkingLot lot = new ParkingLot(new DataManager(dir.getPath()));
+            try {
+                if (!lastSpotRound(lot, threads))
+                    violations++;
+            } finally {
+                lot.close();
+                Bench.deleteDir(dir);
+            }
+        }
+        System.out.println("Tranh chỗ cuối cùng (" + threads + " cổng x " + rounds + " lượt): "
+                + (violations == 0 ? "OK, luôn đúng 1 cổng thắng" : violations + " lượt SAI"));
+    }
+
+    // Một lượt tranh chỗ cuối cùng, true nếu đúng một cổng thắng
+    private static boolean lastSpotRound(ParkingLot lot, int threads) throws Exception {
+        lot.addSpots(VehicleType.CAR, 1);
+        for (int t = 0; t < threads; t++) {
+            lot.addVehicle(plate(t, 0), VehicleType.CAR, "Race " + t, "0900000000");
+        }
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> racers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int gate = t;
+            Thread racer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (lot.parkVehicleAuto(plate(gate, 0)))
+                    winners.incrementAndGet();
+            });
+            racers.add(racer);
+            racer.start();
+        }
+        start.countDown();
+        for (Thread racer : racers) {
+            racer.join();
+        }
+        return winners.get() == 1 && lot.getActiveTicketCount() == 1;
+    }
+
+    private static String plate(int gate, int i) {
+        return "B" + gate + "-" + i;
+    }
+}
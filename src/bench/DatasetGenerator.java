@@ -0,0 +1,367 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import logic.Vehicle;
+import logic.VehicleType;
+
+/**
+ * Sinh bộ dữ liệu lớn đúng định dạng DataManager (vehicles.csv, spots.csv,
+ * tickets.csv, meta.csv) để đo thời gian khởi động và tìm kiếm.
+ * - Xe: biển số kiểu Việt Nam (ô tô 30A-123.45, xe máy 29B1-123.45, xe đạp
+ * 29XD-12345), họ tên tiếng Việt đã chuẩn hóa, số điện thoại di động.
+ * - Chỗ đỗ: chia theo tỉ lệ cho mọi VehicleType.
+ * - Vé: lịch sử nhiều năm theo thứ tự thời gian, không có hai vé chồng nhau
+ * trên cùng một chỗ hay cùng một xe; vé đang hoạt động khớp đúng với các chỗ
+ * đang có xe trong spots.csv.
+ * Vé được ghi thẳng ra file ngay khi sinh, bộ nhớ chỉ tỉ lệ với số xe + số
+ * chỗ nên sinh được hàng chục triệu vé.
+ *
+ * Chạy: java -cp bin bench.DatasetGenerator out=data-big [vehicles=1e6]
+ *       [spots=1e4] [tickets=1e7] [years=3] [occupancy=0.6] [seed=42]
+ */
+public class DatasetGenerator {
+    private static final VehicleType[] TYPES = VehicleType.values();
+    // Tỉ lệ xe / chỗ đỗ theo loại (BICYCLE, MOTORBIKE, CAR)
+    private static final double[] TYPE_WEIGHTS = { 0.1, 0.6, 0.3 };
+    // Trung vị thời gian gửi (phút) và độ lệch chuẩn của log theo loại xe
+    private static final double[] MEDIAN_STAY_MINUTES = { 120, 180, 240 };
+    private static final double STAY_SIGMA = 0.9;
+    private static final int MAX_STAY_MINUTES = 3 * 24 * 60;
+
+    private static final String[] FAMILY = { "Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ",
+            "Đặng", "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý" };
+    // Tỉ lệ phần trăm xấp xỉ của các họ ở trên
+    private static final int[] FAMILY_WEIGHTS = { 38, 11, 9, 7, 5, 5, 4, 4, 3, 2, 2, 2, 2, 2, 2, 2 };
+    private static final String[] MIDDLE = { "Văn", "Thị", "Minh", "Đức", "Thanh", "Ngọc", "Quốc", "Hữu", "Gia",
+            "Hoài", "Xuân", "Thu", "Anh", "Bảo", "Kim" };
+    private static final String[] GIVEN = { "An", "Bình", "Cường", "Dũng", "Giang", "Hạnh", "Hiếu", "Hoa", "Hùng",
+            "Khánh", "Lan", "Linh", "Long", "Mai", "Nam", "Phương", "Quang", "Sơn", "Thảo", "Trang", "Tuấn", "Vy",
+            "Yến", "Đạt", "Huy", "Hà", "Nhung", "Phúc", "Tâm", "Trung" };
+    private static final String[] PROVINCES = { "29", "30", "31", "33", "40", "14", "15", "16", "17", "18", "19",
+            "20", "21", "22", "23", "24", "25", "26", "27", "28", "34", "35", "36", "37", "38", "43", "47", "49", "50",
+            "51", "59", "60", "61", "62", "63", "64", "65", "66", "67", "68", "69", "70", "71", "72", "73", "74",
+            "75", "76", "77", "78", "79", "81", "82", "83", "84", "85", "86", "88", "89", "90", "92", "93", "94",
+            "95", "97", "98", "99" };
+    private static final String SERIES = "ABCDEFGHKLMNPSTUVXYZ";
+    private static final String[] PHONE_PREFIXES = { "03", "05", "07", "08", "09" };
+
+    private final File dir;
+    private final int vehicles;
+    private final int spots;
+    private final long tickets;
+    private final int years;
+    private final double occupancy;
+    private final long seed;
+    private final Random random;
+
+    // Danh sách xe / chỗ theo loại và thời điểm (phút từ mốc) rảnh lại của từng xe / chỗ
+    private final int[][] vehiclesOfType = new int[TYPES.length][];
+    private final int[][] spotsOfType = new int[TYPES.length][];
+    private final int[] vehicleFreeAt;
+    private final int[] spotFreeAt;
+    // Loại xe của từng chỗ và xe đang đỗ ở chỗ đó (-1: trống)
+    private final byte[] spotType;
+    private final int[] spotVehicle;
+    private final int[] spotCursor = new int[TYPES.length];
+
+    DatasetGenerator(File dir, int vehicles, int spots, long tickets, int years, double occupancy, long seed) {
+        this.dir = dir;
+        this.vehicles = vehicles;
+        this.spots = spots;
+        this.tickets = tickets;
+        this.years = years;
+        this.occupancy = occupancy;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.vehicleFreeAt = new int[vehicles];
+        this.spotFreeAt = new int[spots];
+        this.spotType = new byte[spots];
+        this.spotVehicle = new int[spots];
+    }
+
+    public static void main(String[] args) throws IOException {
+        String out = null;
+        int vehicles = 1_000_000;
+        int spots = 10_000;
+        long tickets = 10_000_000;
+        int years = 3;
+        double occupancy = 0.6;
+        long seed = 42;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2)
+                throw new IllegalArgumentException("Tham số phải có dạng key=value: " + arg);
+            switch (kv[0]) {
+                case "out":
+                    out = kv[1];
+                    break;
+                case "vehicles":
+                    vehicles = (int) Double.parseDouble(kv[1]);
+                    break;
+                case "spots":
+                    spots = (int) Double.parseDouble(kv[1]);
+                    break;
+                case "tickets":
+                    tickets = (long) Double.parseDouble(kv[1]);
+                    break;
+                case "years":
+                    years = Integer.parseInt(kv[1]);
+                    break;
+                case "occupancy":
+                    occupancy = Double.parseDouble(kv[1]);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tham số không hỗ trợ: " + kv[0]);
+            }
+        }
+        if (out == null)
+            throw new IllegalArgumentException("Thiếu tham số out=<thư mục>");
+        File dir = new File(out);
+        dir.mkdirs();
+
+        long begin = System.nanoTime();
+        new DatasetGenerator(dir, vehicles, spots, tickets, years, occupancy, seed).generate();
+        System.out.printf("Đã sinh %d xe, %d chỗ, %d vé lịch sử vào '%s' trong %.1f s%n", vehicles, spots, tickets,
+                out, (System.nanoTime() - begin) / 1e9);
+        for (String name : new String[] { "vehicles.csv", "spots.csv", "tickets.csv", "meta.csv" }) {
+            System.out.printf("  %-13s %,d byte%n", name, new File(dir, name).length());
+        }
+    }
+
+    void generate() throws IOException {
+        writeVehicles();
+        assignSpotTypes();
+        int lastTicketID = writeTickets();
+        writeSpots();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "meta.csv")))) {
+            bw.write("lastTicketID," + lastTicketID);
+            bw.newLine();
+        }
+    }
+
+    private void writeVehicles() throws IOException {
+        int[] counts = new int[TYPES.length];
+        for (int i = 0; i < vehicles; i++)
+            counts[type(i)]++;
+        for (int t = 0; t < TYPES.length; t++)
+            vehiclesOfType[t] = new int[counts[t]];
+        int[] fill = new int[TYPES.length];
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "vehicles.csv")), 1 << 16)) {
+            for (int i = 0; i < vehicles; i++) {
+                int t = type(i);
+                vehiclesOfType[t][fill[t]++] = i;
+                bw.write(plate(i) + "," + TYPES[t] + "," + ownerName(i) + "," + phone(i));
+                bw.newLine();
+            }
+        }
+    }
+
+    // Chỗ có mã j + 1 thuộc loại xe theo TYPE_WEIGHTS, rải đều trong bãi
+    private void assignSpotTypes() {
+        int[] counts = new int[TYPES.length];
+        for (int j = 0; j < spots; j++) {
+            // Dãy j * tỉ lệ vàng (mod 1) phủ đều [0, 1) nên các loại xen kẽ khắp bãi
+            int t = typeAt((j * 0.6180339887498949) % 1.0);
+            spotType[j] = (byte) t;
+            counts[t]++;
+        }
+        for (int t = 0; t < TYPES.length; t++)
+            spotsOfType[t] = new int[counts[t]];
+        int[] fill = new int[TYPES.length];
+        for (int j = 0; j < spots; j++) {
+            spotsOfType[spotType[j]][fill[spotType[j]]++] = j;
+            spotVehicle[j] = -1;
+        }
+    }
+
+    /*
+     * Lịch sử vé: giờ vào tăng dần đều trong khoảng years năm trước "bây giờ".
+     * Mỗi vé lấy chỗ kế tiếp theo vòng của loại xe và một xe ngẫu nhiên đang
+     * rảnh; nếu chỗ/xe còn bận thì lùi giờ vào tới khi rảnh. Sau đó là vé đang
+     * hoạt động cho occupancy phần chỗ đỗ.
+     */
+    private int writeTickets() throws IOException {
+        LocalDateTime end = LocalDateTime.of(2025, 1, 1, 8, 0);
+        LocalDateTime start = end.minusYears(years);
+        int spanMinutes = (int) Duration.between(start, end).toMinutes();
+        int id = 0;
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "tickets.csv")), 1 << 16)) {
+            for (long k = 0; k < tickets; k++) {
+                int t = pickType();
+                if (spotsOfType[t].length == 0 || vehiclesOfType[t].length == 0)
+                    continue;
+                int spot = nextSpot(t);
+                int vehicle = pickVehicle(t, 8);
+                int entry = (int) (k * (spanMinutes - MAX_STAY_MINUTES) / Math.max(1, tickets));
+                entry = Math.max(entry, Math.max(spotFreeAt[spot], vehicleFreeAt[vehicle]));
+                int exit = Math.min(spanMinutes - 1, entry + stayMinutes(t));
+                if (entry >= exit)
+                    continue;
+                spotFreeAt[spot] = exit;
+                vehicleFreeAt[vehicle] = exit;
+                bw.write(++id + "," + (spot + 1) + "," + plate(vehicle) + "," + start.plusMinutes(entry) + ","
+                        + start.plusMinutes(exit));
+                bw.newLine();
+            }
+
+            // Vé đang hoạt động: mỗi chỗ được chọn có đúng một xe rảnh đang đỗ
+            int active = (int) (spots * occupancy);
+            for (int n = 0, j = 0; n < active && j < spots; j++) {
+                int spot = (int) ((j * 2_654_435_761L) % spots);
+                int t = spotType[spot];
+                if (spotVehicle[spot] >= 0 || vehiclesOfType[t].length == 0)
+                    continue;
+                int vehicle = pickVehicle(t, 64);
+                if (vehicleFreeAt[vehicle] == Integer.MAX_VALUE)
+                    continue; // không tìm được xe rảnh, bỏ qua chỗ này
+                int entry = Math.max(spanMinutes - stayMinutes(t), Math.max(spotFreeAt[spot], vehicleFreeAt[vehicle]));
+                entry = Math.min(entry, spanMinutes);
+                vehicleFreeAt[vehicle] = Integer.MAX_VALUE;
+                spotVehicle[spot] = vehicle;
+                bw.write(++id + "," + (spot + 1) + "," + plate(vehicle) + "," + start.plusMinutes(entry) + ",null");
+                bw.newLine();
+                n++;
+            }
+        }
+        return id;
+    }
+
+    private void writeSpots() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "spots.csv")), 1 << 16)) {
+            for (int j = 0; j < spots; j++) {
+                int v = spotVehicle[j];
+                bw.write((j + 1) + "," + TYPES[spotType[j]] + "," + (v >= 0 ? plate(v) : "null") + "," + (v >= 0));
+                bw.newLine();
+            }
+        }
+    }
+
+    private int pickType() {
+        return typeAt(random.nextDouble());
+    }
+
+    // Loại xe ứng với u trong [0, 1) theo phân phối TYPE_WEIGHTS
+    private static int typeAt(double u) {
+        for (int t = 0; t < TYPES.length - 1; t++) {
+            u -= TYPE_WEIGHTS[t];
+            if (u < 0)
+                return t;
+        }
+        return TYPES.length - 1;
+    }
+
+    private int nextSpot(int t) {
+        int[] list = spotsOfType[t];
+        int spot = list[spotCursor[t]];
+        spotCursor[t] = (spotCursor[t] + 1) % list.length;
+        return spot;
+    }
+
+    // Chọn xe ngẫu nhiên của loại t, ưu tiên xe rảnh sớm nhất trong vài lần thử
+    private int pickVehicle(int t, int tries) {
+        int[] list = vehiclesOfType[t];
+        int best = list[random.nextInt(list.length)];
+        for (int i = 1; i < tries; i++) {
+            int candidate = list[random.nextInt(list.length)];
+            if (vehicleFreeAt[candidate] < vehicleFreeAt[best])
+                best = candidate;
+        }
+        return best;
+    }
+
+    private int stayMinutes(int t) {
+        double minutes = MEDIAN_STAY_MINUTES[t] * Math.exp(STAY_SIGMA * random.nextGaussian());
+        return (int) Math.max(5, Math.min(MAX_STAY_MINUTES, minutes));
+    }
+
+    // --- Thuộc tính xe suy ra từ chỉ số, không cần lưu trong bộ nhớ ---
+
+    private long hash(long i, long salt) {
+        long z = seed * 0x9E3779B97F4A7C15L + i * 0xBF58476D1CE4E5B9L + salt;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private int type(int i) {
+        return typeAt((hash(i, 1) >>> 11) * 0x1.0p-53);
+    }
+
+    // Biển số duy nhất theo chỉ số: phần số lấy từ i, tỉnh/sê-ri từ phần còn lại
+    String plate(int i) {
+        int digits = i % 100_000;
+        int rest = i / 100_000;
+        StringBuilder sb = new StringBuilder(12).append(PROVINCES[rest % PROVINCES.length]);
+        rest /= PROVINCES.length;
+        switch (TYPES[type(i)]) {
+            case CAR:
+                sb.append(seriesName(rest)).append('-');
+                return appendNumber(sb, digits).toString();
+            case MOTORBIKE:
+                sb.append(SERIES.charAt(rest % SERIES.length())).append(rest / SERIES.length() + 1).append('-');
+                return appendNumber(sb, digits).toString();
+            default:
+                sb.append("XD");
+                if (rest > 0)
+                    sb.append(rest);
+                sb.append('-');
+                return appendDigits(sb, digits, 5).toString();
+        }
+    }
+
+    // Phần số dạng 123.45
+    private static StringBuilder appendNumber(StringBuilder sb, int digits) {
+        appendDigits(sb, digits / 100, 3).append('.');
+        return appendDigits(sb, digits % 100, 2);
+    }
+
+    // Số có đệm 0 bên trái cho đủ width chữ số
+    private static StringBuilder appendDigits(StringBuilder sb, long value, int width) {
+        String text = Long.toString(value);
+        for (int k = text.length(); k < width; k++)
+            sb.append('0');
+        return sb.append(text);
+    }
+
+    // Sê-ri chữ cái: A..Z, rồi AA, AB, ...
+    private static String seriesName(int n) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.insert(0, SERIES.charAt(n % SERIES.length()));
+            n = n / SERIES.length() - 1;
+        } while (n >= 0);
+        return sb.toString();
+    }
+
+    String ownerName(int i) {
+        long h = hash(i, 2);
+        int w = (int) Math.floorMod(h, 100L);
+        int f = 0;
+        while (f < FAMILY.length - 1 && w >= FAMILY_WEIGHTS[f]) {
+            w -= FAMILY_WEIGHTS[f];
+            f++;
+        }
+        h >>>= 8;
+        String middle = MIDDLE[(int) Math.floorMod(h, (long) MIDDLE.length)];
+        h >>>= 8;
+        String given = GIVEN[(int) Math.floorMod(h, (long) GIVEN.length)];
+        return Vehicle.chuanHoaHoTen(FAMILY[f] + " " + middle + " " + given);
+    }
+
+    private String phone(int i) {
+        long h = hash(i, 3);
+        String prefix = PHONE_PREFIXES[(int) Math.floorMod(h, (long) PHONE_PREFIXES.length)];
+        StringBuilder sb = new StringBuilder(10).append(prefix);
+        return appendDigits(sb, Math.floorMod(h >>> 8, 100_000_000L), 8).toString();
+    }
+}
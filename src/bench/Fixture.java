@@ -0,0 +1,100 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import logic.VehicleType;
+
+/**
+ * Bộ dữ liệu benchmark ghi thẳng ra các file CSV đúng định dạng của
+ * DataManager (nhanh hơn nhiều so với tạo qua ParkingLot khi lịch sử vé lên tới
+ * hàng triệu dòng).
+ * - Xe thứ i có biển số plate(i), loại VehicleType thứ i % số loại.
+ * - Chỗ có mã j (từ 1) cho loại xe thứ (j - 1) % số loại, nên xe i vừa chỗ i + 1.
+ * - activeCount xe đầu tiên đang đỗ ở chỗ i + 1 (tối đa một nửa số xe và số chỗ).
+ * - history vé đã đóng xoay vòng qua các xe, sau đó là vé của các xe đang đỗ.
+ */
+final class Fixture {
+    private static final String[] FAMILY = { "Nguyen", "Tran", "Le", "Pham", "Hoang", "Huynh", "Phan", "Vu", "Vo",
+            "Dang", "Bui", "Do", "Ho", "Ngo", "Duong", "Ly" };
+    private static final String[] MIDDLE = { "Van", "Thi", "Minh", "Duc", "Thanh", "Ngoc", "Quoc", "Huu", "Gia",
+            "Hoai" };
+    private static final String[] GIVEN = { "An", "Binh", "Cuong", "Dung", "Giang", "Hanh", "Hieu", "Hoa", "Hung",
+            "Khanh", "Lan", "Linh", "Long", "Mai", "Nam", "Phuong", "Quang", "Son", "Thao", "Trang", "Tuan", "Vy" };
+    private static final VehicleType[] TYPES = VehicleType.values();
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 6, 0);
+
+    final File dir;
+    final int vehicles;
+    final int spots;
+    final int history;
+    final int activeCount;
+
+    private Fixture(File dir, int vehicles, int spots, int history) {
+        this.dir = dir;
+        this.vehicles = vehicles;
+        this.spots = spots;
+        this.history = history;
+        this.activeCount = Math.min(vehicles / 2, spots / 2);
+    }
+
+    static Fixture create(int vehicles, int spots, int history) throws IOException {
+        Fixture f = new Fixture(Bench.tempDir("parking-fixture"), vehicles, spots, history);
+        f.write();
+        return f;
+    }
+
+    static String plate(int i) {
+        return String.format("BX%07d", i);
+    }
+
+    static VehicleType type(int i) {
+        return TYPES[i % TYPES.length];
+    }
+
+    static String ownerName(int i) {
+        return FAMILY[i % FAMILY.length] + " " + MIDDLE[(i / FAMILY.length) % MIDDLE.length] + " "
+                + GIVEN[(i / (FAMILY.length * MIDDLE.length)) % GIVEN.length];
+    }
+
+    private void write() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "vehicles.csv")), 1 << 16)) {
+            for (int i = 0; i < vehicles; i++) {
+                bw.write(plate(i) + "," + type(i) + "," + ownerName(i) + ",09" + String.format("%08d", i));
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "spots.csv")), 1 << 16)) {
+            for (int j = 1; j <= spots; j++) {
+                boolean occupied = j - 1 < activeCount;
+                bw.write(j + "," + type(j - 1) + "," + (occupied ? plate(j - 1) : "null") + "," + occupied);
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "tickets.csv")), 1 << 16)) {
+            int id = 0;
+            for (int k = 0; k < history; k++) {
+                int v = vehicles == 0 ? 0 : k % vehicles;
+                LocalDateTime entry = START.plusMinutes(k);
+                bw.write(++id + "," + (v % Math.max(1, spots) + 1) + "," + plate(v) + "," + entry + ","
+                        + entry.plusMinutes(90));
+                bw.newLine();
+            }
+            for (int i = 0; i < activeCount; i++) {
+                bw.write(++id + "," + (i + 1) + "," + plate(i) + "," + START.plusMinutes(history + i) + ",null");
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "meta.csv")))) {
+            bw.write("lastTicketID," + (history + activeCount));
+            bw.newLine();
+        }
+    }
+
+    void delete() {
+        Bench.deleteDir(dir);
+    }
+}
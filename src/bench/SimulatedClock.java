@@ -0,0 +1,47 @@
+package bench;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Đồng hồ mô phỏng: chỉ chạy khi được đặt giờ (setMillis), dùng để ParkingLot
+ * ghi giờ vào/ra theo thời gian mô phỏng thay vì giờ hệ thống.
+ */
+final class SimulatedClock extends Clock {
+    private final ZoneId zone;
+    private volatile long millis;
+
+    SimulatedClock(Instant start, ZoneId zone) {
+        this.zone = zone;
+        this.millis = start.toEpochMilli();
+    }
+
+    void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new SimulatedClock(Instant.ofEpochMilli(millis), zone);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+}
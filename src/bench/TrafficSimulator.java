@@ -0,0 +1,283 @@
+package bench;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import logic.DataManager;
+import logic.ParkingLot;
+import logic.Ticket;
+import logic.VehicleType;
+
+/**
+ * Mô phỏng lưu lượng xe vào/ra ParkingLot theo thời gian tăng tốc:
+ * - Xe đến theo quá trình Poisson riêng cho từng loại xe, cường độ thay đổi
+ * theo giờ trong ngày (cao điểm sáng/chiều, vắng ban đêm, cuối tuần ít hơn).
+ * - Thời gian gửi xe theo phân phối lognormal.
+ * ParkingLot dùng SimulatedClock nên giờ vào/ra trên vé là giờ mô phỏng, cả
+ * tháng lưu lượng chạy xong trong vài giây. Báo cáo: thông lượng, phân vị độ
+ * trễ của parkVehicleAuto/retrieveVehicle, tỉ lệ bị từ chối khi hết chỗ.
+ *
+ * Chạy: java -cp bin bench.TrafficSimulator [days=30] [spots=300] [scale=1] [seed=42]
+ * (spots: số chỗ mỗi loại xe, scale: hệ số nhân lưu lượng)
+ */
+public class TrafficSimulator {
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    // Số xe đến trung bình mỗi giờ (ngoài cao điểm) theo loại xe
+    private static final double[] BASE_ARRIVALS_PER_HOUR = { 6, 40, 15 };
+    // Trung vị thời gian gửi (giờ) và độ lệch chuẩn của log theo loại xe
+    private static final double[] MEDIAN_STAY_HOURS = { 2.0, 3.0, 4.0 };
+    private static final double[] STAY_SIGMA = { 0.8, 0.9, 1.0 };
+    private static final double PEAK_FACTOR = 3.0;
+
+    private static final int ARRIVAL = 0;
+    private static final int DEPARTURE = 1;
+
+    // Sự kiện trong hàng đợi mô phỏng, sắp theo thời điểm rồi theo thứ tự tạo
+    private static class Event implements Comparable<Event> {
+        final long time;
+        final long seq;
+        final int kind;
+        final VehicleType type;
+        final String plate;
+
+        Event(long time, long seq, int kind, VehicleType type, String plate) {
+            this.time = time;
+            this.seq = seq;
+            this.kind = kind;
+            this.type = type;
+            this.plate = plate;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            if (time != o.time)
+                return Long.compare(time, o.time);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    // Mảng long tự giãn để ghi độ trễ (nano giây)
+    private static class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        String summary() {
+            if (size == 0)
+                return "không có";
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return String.format("p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[size - 1] / 1e3);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e3;
+        }
+    }
+
+    private final Random random;
+    private final ParkingLot lot;
+    private final SimulatedClock clock;
+    private final double scale;
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private long seq;
+
+    // Xe đã đăng ký nhưng đang ở ngoài bãi, theo loại xe
+    private final EnumMap<VehicleType, ArrayDeque<String>> idle = new EnumMap<>(VehicleType.class);
+    private final EnumMap<VehicleType, Integer> registered = new EnumMap<>(VehicleType.class);
+    private final int[] arrivals = new int[VehicleType.values().length];
+    private final int[] rejected = new int[VehicleType.values().length];
+    private final int[] inLot = new int[VehicleType.values().length];
+    private final int[] peak = new int[VehicleType.values().length];
+    private final LatencyLog parkLatency = new LatencyLog();
+    private final LatencyLog retrieveLatency = new LatencyLog();
+
+    TrafficSimulator(ParkingLot lot, SimulatedClock clock, double scale, long seed) {
+        this.lot = lot;
+        this.clock = clock;
+        this.scale = scale;
+        this.random = new Random(seed);
+        for (VehicleType type : VehicleType.values()) {
+            idle.put(type, new ArrayDeque<>());
+            registered.put(type, 0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int days = 30;
+        int spotsPerType = 300;
+        double scale = 1;
+        long seed = 42;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2)
+                throw new IllegalArgumentException("Tham số phải có dạng key=value: " + arg);
+            switch (kv[0]) {
+                case "days":
+                    days = Integer.parseInt(kv[1]);
+                    break;
+                case "spots":
+                    spotsPerType = Integer.parseInt(kv[1]);
+                    break;
+                case "scale":
+                    scale = Double.parseDouble(kv[1]);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tham số không hỗ trợ: " + kv[0]);
+            }
+        }
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        ZoneId zone = ZoneId.systemDefault();
+        SimulatedClock clock = new SimulatedClock(start.atZone(zone).toInstant(), zone);
+        File dir = Bench.tempDir("parking-bench");
+        ParkingLot lot = new ParkingLot(new DataManager(dir.getPath()));
+        try {
+            lot.setClock(clock);
+            for (VehicleType type : VehicleType.values())
+                lot.addSpots(type, spotsPerType);
+
+            TrafficSimulator sim = new TrafficSimulator(lot, clock, scale, seed);
+            long begin = System.nanoTime();
+            sim.run(clock.getMillis(), clock.getMillis() + days * DAY);
+            double wallSeconds = (System.nanoTime() - begin) / 1e9;
+            sim.report(days, spotsPerType, wallSeconds);
+        } finally {
+            lot.close();
+            Bench.deleteDir(dir);
+        }
+    }
+
+    // Chạy mô phỏng trong khoảng [from, to) (mili giây epoch)
+    void run(long from, long to) {
+        for (VehicleType type : VehicleType.values())
+            scheduleNextArrival(type, from);
+
+        while (!queue.isEmpty()) {
+            Event e = queue.poll();
+            if (e.time >= to)
+                break;
+            clock.setMillis(e.time);
+            int t = e.type.ordinal();
+            if (e.kind == ARRIVAL) {
+                arrivals[t]++;
+                String plate = takeIdleVehicle(e.type);
+                long begin = System.nanoTime();
+                boolean parked = lot.parkVehicleAuto(plate);
+                parkLatency.add(System.nanoTime() - begin);
+                if (parked) {
+                    inLot[t]++;
+                    peak[t] = Math.max(peak[t], inLot[t]);
+                    queue.add(new Event(e.time + stayMillis(t), seq++, DEPARTURE, e.type, plate));
+                } else {
+                    rejected[t]++; // Hết chỗ: xe quay về
+                    idle.get(e.type).add(plate);
+                }
+                scheduleNextArrival(e.type, e.time);
+            } else {
+                long begin = System.nanoTime();
+                lot.retrieveVehicle(e.plate);
+                retrieveLatency.add(System.nanoTime() - begin);
+                inLot[t]--;
+                idle.get(e.type).add(e.plate);
+            }
+        }
+    }
+
+    // Quá trình Poisson không dừng, sinh bằng phương pháp thinning: đề xuất
+    // theo cường độ lớn nhất rồi giữ lại với xác suất cường độ(t) / cường độ lớn nhất
+    private void scheduleNextArrival(VehicleType type, long now) {
+        double maxPerMilli = BASE_ARRIVALS_PER_HOUR[type.ordinal()] * scale * PEAK_FACTOR / HOUR;
+        long t = now;
+        while (true) {
+            t += (long) Math.ceil(-Math.log(1 - random.nextDouble()) / maxPerMilli);
+            if (random.nextDouble() * PEAK_FACTOR <= rushProfile(t))
+                break;
+        }
+        queue.add(new Event(t, seq++, ARRIVAL, type, null));
+    }
+
+    // Hệ số lưu lượng theo giờ trong ngày (tối đa PEAK_FACTOR)
+    private double rushProfile(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), clock.getZone());
+        double hour = time.getHour() + time.getMinute() / 60.0;
+        boolean weekend = time.getDayOfWeek().getValue() >= 6;
+        double factor;
+        if (hour >= 7 && hour < 9)
+            factor = PEAK_FACTOR; // cao điểm sáng
+        else if (hour >= 17 && hour < 19)
+            factor = 2.5; // cao điểm chiều
+        else if (hour >= 22 || hour < 5)
+            factor = 0.15; // ban đêm
+        else
+            factor = 1.0;
+        return weekend ? factor * 0.6 : factor;
+    }
+
+    // Thời gian gửi xe (mili giây) theo lognormal, tối thiểu 1 phút
+    private long stayMillis(int t) {
+        double hours = MEDIAN_STAY_HOURS[t] * Math.exp(STAY_SIGMA[t] * random.nextGaussian());
+        return Math.max(60_000L, (long) (hours * HOUR));
+    }
+
+    // Lấy một xe đang ở ngoài bãi, đăng ký thêm xe mới nếu không còn
+    private String takeIdleVehicle(VehicleType type) {
+        String plate = idle.get(type).poll();
+        if (plate != null)
+            return plate;
+        int n = registered.get(type);
+        registered.put(type, n + 1);
+        plate = "SIM-" + type.name().charAt(0) + "-" + n;
+        lot.addVehicle(plate, type, "Khach " + n, "0900000000");
+        return plate;
+    }
+
+    private void report(int days, int spotsPerType, double wallSeconds) {
+        int operations = parkLatency.size + retrieveLatency.size;
+        System.out.printf("Mô phỏng %d ngày, %d chỗ mỗi loại xe: chạy %.2f s (nhanh hơn thực tế %.0f lần)%n",
+                days, spotsPerType, wallSeconds, days * DAY / 1000.0 / wallSeconds);
+        System.out.printf("Thao tác vào/ra: %d | Thông lượng: %.0f thao tác/s%n", operations,
+                operations / wallSeconds);
+        System.out.println("parkVehicleAuto:  " + parkLatency.summary());
+        System.out.println("retrieveVehicle:  " + retrieveLatency.summary());
+        System.out.printf("%-10s %10s %10s %10s %12s%n", "loại xe", "xe đến", "từ chối", "tỉ lệ", "đỗ nhiều nhất");
+        for (VehicleType type : VehicleType.values()) {
+            int t = type.ordinal();
+            System.out.printf("%-10s %10d %10d %9.2f%% %12d%n", type, arrivals[t], rejected[t],
+                    100.0 * rejected[t] / Math.max(1, arrivals[t]), peak[t]);
+        }
+
+        // Kiểm tra giờ trên vé đúng là giờ mô phỏng
+        long closed = 0;
+        long stayMinutes = 0;
+        for (Ticket ticket : lot.getTickets()) {
+            if (ticket.getExitTime() != null) {
+                closed++;
+                stayMinutes += Duration.between(ticket.getEntryTime(), ticket.getExitTime()).toMinutes();
+            }
+        }
+        System.out.printf("Vé đã đóng: %d, thời gian gửi trung bình theo vé: %.1f giờ%n", closed,
+                stayMinutes / 60.0 / Math.max(1, closed));
+    }
+}
@@ -241,10 +241,15 @@ public class CollectTicketPanel extends JPanel {
      * @param plate Biển số xe cần trả.
      */
     private void processReturn(String plate) {
+        // Đọc vé trước khi trả: retrieveVehicle ghi giờ ra vào chính vé này
+        Ticket ticket = parkingLot.getTicketByLicensePlate(plate);
         boolean success = parkingLot.retrieveVehicle(plate);
 
         if (success) {
-            String exitTimeStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
+            LocalDateTime exitTime = (ticket != null) ? ticket.getExitTime() : null;
+            String exitTimeStr = (exitTime != null)
+                    ? exitTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))
+                    : "Không rõ";
             JOptionPane.showMessageDialog(this,
                     "Đã thu vé và trả xe thành công!\nBiển số: " + plate + "\nGiờ ra: " + exitTimeStr,
                     "Thành công",
@@ -7,13 +7,14 @@ import java.awt.event.WindowEvent;
 import java.io.IOException;
 
 import logic.ParkingLot;
+import logic.SnapshotScheduler;
 
 /**
  * MainFrame - Cửa sổ chính của ứng dụng.
  * Chức năng:
  * 1. Khởi tạo và giữ instance duy nhất của ParkingLot (Logic).
  * 2. Quản lý điều hướng (Navigation) giữa các chức năng.
- * 3. Xử lý vòng đời ứng dụng (Lưu dữ liệu khi tắt).
+ * 3. Xử lý vòng đời ứng dụng (Lưu dữ liệu định kỳ và khi tắt).
  */
 public class MainFrame extends JFrame {
 
@@ -24,6 +25,23 @@ public class MainFrame extends JFrame {
      */
     private ParkingLot parkingLot;
 
+    /**
+     * Lưu dữ liệu định kỳ ở luồng nền, giao diện không bị đứng trong lúc ghi file.
+     */
+    private SnapshotScheduler snapshotScheduler;
+
+    // Chu kỳ lưu định kỳ (giây)
+    private static final long SAVE_INTERVAL_SECONDS = 60;
+
+    // Chu kỳ kiểm tra lỗi ghi nhật ký và lỗi lưu định kỳ (mili giây)
+    private static final int FAILURE_CHECK_MILLIS = 5000;
+
+    // Lỗi ghi nhật ký đã báo cho người dùng (mỗi lỗi mới chỉ báo một lần)
+    private IOException reportedJournalFailure;
+
+    // Số lần lưu lỗi đã báo cho người dùng
+    private long reportedSaveFailures;
+
     // --- Fields: UI Components ---
     private JPanel navPanel; // Panel bên trái chứa các nút điều hướng
     private JPanel contentPanel; // Panel ở giữa hiển thị nội dung chính
@@ -56,6 +74,23 @@ public class MainFrame extends JFrame {
     private void initLogic() {
         try {
             this.parkingLot = new ParkingLot();
+            this.snapshotScheduler = new SnapshotScheduler(parkingLot, SAVE_INTERVAL_SECONDS);
+            snapshotScheduler.start();
+            int skipped = parkingLot.getSkippedJournalRecords();
+            if (skipped > 0) {
+                JOptionPane.showMessageDialog(this, "Bỏ qua " + skipped + " bản ghi nhật ký hỏng khi khôi phục dữ liệu.",
+                        "Cảnh báo", JOptionPane.WARNING_MESSAGE);
+            }
+            int duplicates = parkingLot.getDuplicateOpenTickets();
+            if (duplicates > 0) {
+                JOptionPane.showMessageDialog(this, "Bỏ qua " + duplicates
+                        + " vé chưa ra trùng biển số với vé đang hoạt động khác khi khôi phục dữ liệu.",
+                        "Cảnh báo", JOptionPane.WARNING_MESSAGE);
+            }
+            new Timer(FAILURE_CHECK_MILLIS, e -> {
+                checkJournal();
+                checkSnapshot();
+            }).start();
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Lỗi đọc dữ liệu: " + e.getMessage(), "Lỗi Khởi Động",
                     JOptionPane.ERROR_MESSAGE);
@@ -227,6 +262,35 @@ public class MainFrame extends JFrame {
 
     // --- Actions ---
 
+    /**
+     * Báo lỗi ghi nhật ký: các thay đổi từ lúc đó chỉ còn trong bộ nhớ cho tới
+     * lần lưu dữ liệu kế tiếp.
+     */
+    private void checkJournal() {
+        IOException failure = parkingLot.getJournalFailure();
+        if (failure == null || failure == reportedJournalFailure)
+            return;
+        reportedJournalFailure = failure;
+        JOptionPane.showMessageDialog(this,
+                "Lỗi ghi nhật ký: " + failure.getMessage()
+                        + "\nDữ liệu vẫn được giữ và sẽ được ghi ở lần lưu kế tiếp.",
+                "Cảnh báo", JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Báo lỗi lưu dữ liệu định kỳ mới (luồng lưu sẽ tự thử lại ở chu kỳ sau).
+     */
+    private void checkSnapshot() {
+        long failures = snapshotScheduler.getFailureCount();
+        if (failures == reportedSaveFailures)
+            return;
+        reportedSaveFailures = failures;
+        JOptionPane.showMessageDialog(this,
+                "Lỗi lưu dữ liệu định kỳ: " + snapshotScheduler.getLastError()
+                        + "\nHệ thống sẽ thử lưu lại ở chu kỳ kế tiếp.",
+                "Cảnh báo", JOptionPane.WARNING_MESSAGE);
+    }
+
     /**
      * Thực hiện lưu dữ liệu và thoát ứng dụng.
      */
@@ -238,8 +302,9 @@ public class MainFrame extends JFrame {
 
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                if (parkingLot != null) {
-                    parkingLot.saveAllData();
+                if (snapshotScheduler != null) {
+                    snapshotScheduler.stop();
+                    snapshotScheduler.saveNow();
                 }
             } catch (IOException ex) {
                 ex.printStackTrace();
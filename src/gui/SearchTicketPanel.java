@@ -20,6 +20,10 @@ public class SearchTicketPanel extends JPanel {
     private ParkingLot parkingLot;
     /** Định dạng ngày giờ hiển thị. */
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    /** Số vé tải mỗi lần khi không nhập từ khóa (vé mới nhất trước). */
+    private static final int PAGE_SIZE = 200;
+    /** Mã vé cuối cùng đang hiển thị khi duyệt toàn bộ vé (trang sau bắt đầu từ đây). */
+    private int lastShownTicketID = Integer.MAX_VALUE;
 
     // --- Fields: UI Components ---
     private JComboBox<String> searchTypeCombo; // Lựa chọn tiêu chí tìm kiếm
@@ -27,6 +31,7 @@ public class SearchTicketPanel extends JPanel {
     private JTable resultTable; // Bảng hiển thị kết quả
     private DefaultTableModel tableModel; // Model dữ liệu
     private JButton searchButton; // Nút tìm kiếm
+    private JButton moreButton; // Nút tải thêm vé cũ hơn khi duyệt toàn bộ vé
 
     // --- Constructor ---
     public SearchTicketPanel(ParkingLot parkingLot) {
@@ -83,11 +88,18 @@ public class SearchTicketPanel extends JPanel {
 
         JScrollPane scrollPane = new JScrollPane(resultTable);
         add(scrollPane, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        moreButton = new JButton("Xem thêm vé cũ");
+        moreButton.setVisible(false);
+        bottomPanel.add(moreButton);
+        add(bottomPanel, BorderLayout.SOUTH);
     }
 
     private void initEvents() {
         searchButton.addActionListener(this::handleSearchAction);
         searchField.addActionListener(this::handleSearchAction); // Allow pressing Enter
+        moreButton.addActionListener(e -> loadMoreTickets());
     }
 
     // --- Business Logic ---
@@ -99,10 +111,12 @@ public class SearchTicketPanel extends JPanel {
     private void handleSearchAction(ActionEvent e) {
         String keyword = searchField.getText().trim();
         tableModel.setRowCount(0); // Xóa kết quả cũ
+        moreButton.setVisible(false);
 
         if (keyword.isEmpty()) {
-            // Khi không nhập gì, hiển thị toàn bộ vé hiện có
-            displayResults(new ArrayList<>(parkingLot.getTickets()));
+            // Khi không nhập gì, hiển thị vé theo từng trang, vé mới nhất trước
+            lastShownTicketID = Integer.MAX_VALUE;
+            loadMoreTickets();
             return;
         }
 
@@ -125,6 +139,19 @@ public class SearchTicketPanel extends JPanel {
         handleSearchAction(null);
     }
 
+    /**
+     * Tải thêm một trang vé cũ hơn vé cuối cùng đang hiển thị. Chỉ đọc phần
+     * lịch sử cần cho trang đó chứ không đọc toàn bộ lịch sử trên đĩa.
+     */
+    private void loadMoreTickets() {
+        ArrayList<Ticket> page = parkingLot.getTicketsBefore(lastShownTicketID, PAGE_SIZE, null);
+        displayResults(page);
+        if (!page.isEmpty())
+            lastShownTicketID = page.get(page.size() - 1).getTicketID();
+        // Trang chưa đầy nghĩa là đã hết lịch sử
+        moreButton.setVisible(page.size() == PAGE_SIZE);
+    }
+
     /**
      * Tìm vé theo ID.
      * 
@@ -150,12 +177,8 @@ public class SearchTicketPanel extends JPanel {
      * @param results Danh sách kết quả.
      */
     private void searchByLicensePlate(String keyword, ArrayList<Ticket> results) {
-        // Duyệt qua toàn bộ danh sách vé để tìm các vé khớp biển số
-        for (Ticket t : parkingLot.getTickets()) {
-            if (t.getLicensePlate().equalsIgnoreCase(keyword)) {
-                results.add(t);
-            }
-        }
+        // Lấy các vé khớp biển số ở cả tầng nóng và tầng lạnh của lịch sử vé
+        results.addAll(parkingLot.getTicketsByLicensePlate(keyword));
     }
 
     /**
@@ -3,6 +3,8 @@ package gui;
 import logic.ParkingLot;
 import logic.Vehicle;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -85,6 +87,34 @@ public class SearchVehiclePanel extends JPanel {
     private void initEvents() {
         searchButton.addActionListener(this::handleSearchAction);
         searchField.addActionListener(this::handleSearchAction);
+
+        // Tìm theo tên chủ xe: cập nhật kết quả ngay khi đang gõ
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchAsYouType();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchAsYouType();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchAsYouType();
+            }
+        });
+    }
+
+    /**
+     * Tìm ngay khi người dùng gõ (chỉ áp dụng cho tìm theo tên chủ xe và khi đã
+     * có từ khóa, tránh nạp lại toàn bộ danh sách xe sau mỗi phím).
+     */
+    private void searchAsYouType() {
+        if ("Tên Chủ Xe".equals(searchTypeCombo.getSelectedItem()) && !searchField.getText().trim().isEmpty()) {
+            handleSearchAction(null);
+        }
     }
 
     // --- Business Logic ---
@@ -121,11 +151,11 @@ public class SearchVehiclePanel extends JPanel {
     }
 
     /**
-     * Tìm xe theo tên chủ xe (gần đúng hoặc chính xác tùy logic cài đặt trong
-     * ParkingLot).
+     * Tìm xe theo tên chủ xe: hỗ trợ gõ một phần họ tên (vd: "Nguyen Van"),
+     * không dấu hoặc gõ sai nhẹ.
      */
     private void searchByOwnerName(String keyword, ArrayList<Vehicle> results) {
-        results.addAll(parkingLot.getVehicleByOwnerName(keyword));
+        results.addAll(parkingLot.searchVehiclesByOwnerName(keyword));
     }
 
     /**
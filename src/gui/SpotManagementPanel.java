@@ -1,5 +1,6 @@
 package gui;
 
+import logic.Occupancy;
 import logic.ParkingLot;
 import logic.ParkingSpot;
 import logic.VehicleType;
@@ -26,6 +27,7 @@ public class SpotManagementPanel extends JPanel {
     private JComboBox<String> cbFilterStatus; // Bộ lọc theo trạng thái (Tất cả / Trống / Có xe)
     private JButton btnAddSpots; // Nút thêm chỗ đỗ mới
     private JButton btnResetAll; // Nút reset toàn bộ hệ thống
+    private JLabel lblSummary; // Số chỗ trống / tổng số chỗ theo loại xe
 
     // --- Constructor ---
     public SpotManagementPanel(ParkingLot parkingLot) {
@@ -71,6 +73,10 @@ public class SpotManagementPanel extends JPanel {
         cbFilterStatus.addActionListener(e -> loadData()); // Reload khi chọn
         topPanel.add(cbFilterStatus);
 
+        // 3. Thống kê nhanh số chỗ trống
+        lblSummary = new JLabel();
+        topPanel.add(lblSummary);
+
         add(topPanel, BorderLayout.NORTH);
     }
 
@@ -138,6 +144,7 @@ public class SpotManagementPanel extends JPanel {
      */
     public void loadData() {
         tableModel.setRowCount(0); // Xóa dữ liệu cũ trên bảng
+        updateSummary();
 
         // Lấy giá trị hiện tại từ các bộ lọc
         Object selectedType = cbFilterType.getSelectedItem();
@@ -173,6 +180,20 @@ public class SpotManagementPanel extends JPanel {
         }
     }
 
+    /**
+     * Cập nhật dòng thống kê số chỗ trống theo loại xe (đọc bộ đếm của
+     * ParkingLot, không duyệt danh sách chỗ đỗ).
+     */
+    private void updateSummary() {
+        Occupancy occupancy = parkingLot.getOccupancy();
+        StringBuilder sb = new StringBuilder("   Chỗ trống: ");
+        for (VehicleType type : VehicleType.values()) {
+            sb.append(type).append(' ').append(occupancy.getFree(type)).append('/')
+                    .append(occupancy.getTotal(type)).append("   ");
+        }
+        lblSummary.setText(sb.toString());
+    }
+
     // --- Dialogs & Actions ---
 
     /**
@@ -188,7 +209,7 @@ public class SpotManagementPanel extends JPanel {
 
         // Components trong Dialog
         JComboBox<VehicleType> cbType = new JComboBox<>(VehicleType.values());
-        JSpinner spinnerQty = new JSpinner(new SpinnerNumberModel(1, 1, 100, 1)); // Min 1, Max 100
+        JSpinner spinnerQty = new JSpinner(new SpinnerNumberModel(1, 1, 10000, 1)); // Min 1, Max 10000
         JButton btnConfirm = new JButton("Thêm");
 
         // Style nút xác nhận
@@ -222,11 +243,7 @@ public class SpotManagementPanel extends JPanel {
             VehicleType type = (VehicleType) cbType.getSelectedItem();
             int qty = (int) spinnerQty.getValue();
 
-            int count = 0;
-            while (count < qty) {
-                parkingLot.addSpot(type);
-                count++;
-            }
+            parkingLot.addSpots(type, qty);
 
             JOptionPane.showMessageDialog(dialog, "Đã thêm " + qty + " vị trí đỗ mới.");
             loadData(); // Refresh lại bảng chính để hiện dữ liệu mới
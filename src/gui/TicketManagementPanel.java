@@ -8,6 +8,7 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * Panel quản lý vé (Lịch sử vé).
@@ -22,12 +23,19 @@ public class TicketManagementPanel extends JPanel {
      * Trạng thái hiển thị hiện tại: true = Vé đang hoạt động, false = Vé lịch sử.
      */
     private boolean isShowingActive = true;
+    /** Số vé lịch sử tải mỗi lần (vé mới nhất trước). */
+    private static final int PAGE_SIZE = 200;
+    /** Mã vé cuối cùng đang hiển thị ở chế độ lịch sử (trang sau bắt đầu từ đây). */
+    private int lastShownTicketID = Integer.MAX_VALUE;
+    /** Định dạng ngày giờ hiển thị. */
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
     // --- Fields: UI Components ---
     private JTable table; // Bảng hiển thị danh sách vé
     private DefaultTableModel tableModel; // Model dữ liệu cho bảng
     private JButton btnActiveTickets; // Nút chuyển sang xem vé đang hoạt động
     private JButton btnUsedTickets; // Nút chuyển sang xem vé đã trả
+    private JButton btnMoreTickets; // Nút tải thêm vé lịch sử cũ hơn
 
     // --- Constructor ---
     public TicketManagementPanel(ParkingLot parkingLot) {
@@ -73,18 +81,23 @@ public class TicketManagementPanel extends JPanel {
 
         btnActiveTickets = new JButton("Vé Đang Hoạt Động");
         btnUsedTickets = new JButton("Vé Đã Trả / Đã Thu");
+        btnMoreTickets = new JButton("Xem Thêm Vé Cũ");
 
         styleButton(btnActiveTickets);
         styleButton(btnUsedTickets);
+        styleButton(btnMoreTickets);
+        btnMoreTickets.setVisible(false);
 
         bottomPanel.add(btnActiveTickets);
         bottomPanel.add(btnUsedTickets);
+        bottomPanel.add(btnMoreTickets);
 
         add(bottomPanel, BorderLayout.SOUTH);
 
         // Gắn sự kiện
         btnActiveTickets.addActionListener(e -> loadData(true));
         btnUsedTickets.addActionListener(e -> loadData(false));
+        btnMoreTickets.addActionListener(e -> loadMoreUsedTickets());
     }
 
     private void styleButton(JButton btn) {
@@ -99,23 +112,43 @@ public class TicketManagementPanel extends JPanel {
      * Tải dữ liệu vé lên bảng hiển thị.
      * 
      * @param isActive true: tải danh sách vé đang hoạt động (xe đang trong bãi).
-     *                 false: tải danh sách vé đã trả (lịch sử ra vào).
+     *                 false: tải trang đầu của danh sách vé đã trả (lịch sử ra
+     *                 vào, vé mới nhất trước).
      */
     private void loadData(boolean isActive) {
         this.isShowingActive = isActive;
         tableModel.setRowCount(0); // Xóa dữ liệu cũ trên bảng
 
-        ArrayList<Ticket> list;
         if (isActive) {
-            list = parkingLot.getActiveTicket();
+            // Dùng view trực tiếp, không quét lại toàn bộ lịch sử vé
+            addRows(parkingLot.getActiveTicketView());
+            btnMoreTickets.setVisible(false);
             updateButtonState(true); // Cập nhật giao diện nút bấm
         } else {
-            list = parkingLot.getUsedTicket();
+            lastShownTicketID = Integer.MAX_VALUE;
             updateButtonState(false); // Cập nhật giao diện nút bấm
+            loadMoreUsedTickets();
         }
+    }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    /**
+     * Tải thêm một trang vé đã trả, cũ hơn vé cuối cùng đang hiển thị. Chỉ đọc
+     * phần lịch sử cần cho trang đó chứ không đọc toàn bộ lịch sử trên đĩa.
+     */
+    private void loadMoreUsedTickets() {
+        ArrayList<Ticket> page = parkingLot.getTicketsBefore(lastShownTicketID, PAGE_SIZE,
+                t -> t.getExitTime() != null);
+        addRows(page);
+        if (!page.isEmpty())
+            lastShownTicketID = page.get(page.size() - 1).getTicketID();
+        // Trang chưa đầy nghĩa là đã hết lịch sử
+        btnMoreTickets.setVisible(page.size() == PAGE_SIZE);
+    }
 
+    /**
+     * Thêm các vé vào cuối bảng.
+     */
+    private void addRows(Collection<Ticket> list) {
         for (Ticket t : list) {
             String entry = t.getEntryTime() != null ? t.getEntryTime().format(formatter) : "";
             String exit = t.getExitTime() != null ? t.getExitTime().format(formatter) : "---";
@@ -0,0 +1,281 @@
+package logic;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Định dạng nhị phân của file vé (thay cho tickets.csv, xem
+ * DataManager.TicketFormat): không phải tách chuỗi và parse giờ khi nạp, file
+ * nhỏ hơn nhiều lần.
+ *
+ * tickets.bin: 16 byte đầu (mã nhận dạng, phiên bản, độ dài bản ghi, dự trữ),
+ * sau đó là các bản ghi độ dài cố định 28 byte (big-endian):
+ * int mã vé | int mã chỗ | int số thứ tự biển số | long giờ vào | long giờ ra
+ * Giờ là số giây tính từ 1970-01-01T00:00 (giờ địa phương, không múi giờ, phần
+ * lẻ của giây bị bỏ), Long.MIN_VALUE thay cho null. Bản ghi độ dài cố định nên
+ * ghi thêm vé mới vào cuối và sửa giờ ra tại chỗ được như file CSV.
+ *
+ * tickets.plates: từ điển biển số (UTF-8, dòng thứ i là biển số có số thứ tự i,
+ * -1 là null). Chỉ ghi thêm vào cuối, số thứ tự đã cấp không bao giờ đổi, nên
+ * file vé cũ luôn đọc được với từ điển mới hơn. Biển số mới được ghi (và
+ * fsync) trước khi ghi bản ghi dùng đến nó.
+ *
+ * Các hàm dùng từ điển biển số được đồng bộ (synchronized): trang lịch sử
+ * (TicketHistory) được đọc từ luồng khác trong lúc DataManager ghi vé mới.
+ */
+class BinaryTicketFile {
+    private static final int MAGIC = 0x504B5431; // "PKT1"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 28;
+    // Vị trí cột giờ ra trong một bản ghi
+    static final int EXIT_OFFSET = 20;
+
+    private final File file;
+    private final File plateFile;
+    // Từ điển biển số đã có trên đĩa và các biển số mới chưa ghi
+    private final ArrayList<String> plates = new ArrayList<>();
+    private final HashMap<String, Integer> refByPlate = new HashMap<>();
+    private int savedPlates;
+    private boolean platesLoaded;
+
+    BinaryTicketFile(String filename, String plateFilename) {
+        this.file = new File(filename);
+        this.plateFile = new File(plateFilename);
+    }
+
+    String getFilename() {
+        return file.getPath();
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    // Đọc toàn bộ vé. Bản ghi cuối bị ghi dở hoặc trỏ tới biển số không có trong
+    // từ điển (tắt máy giữa chừng) bị bỏ qua như dòng hỏng của file CSV.
+    synchronized ArrayList<Ticket> load() throws IOException {
+        loadPlates();
+        ArrayList<Ticket> list = new ArrayList<>();
+        if (!file.exists())
+            return list;
+        long records = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+        list.ensureCapacity((int) Math.max(0, Math.min(records, Integer.MAX_VALUE - 8)));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readHeader(channel);
+            scan(channel, HEADER_SIZE, HEADER_SIZE + records * RECORD_SIZE, null, (ticket, offset) -> list.add(ticket));
+        }
+        return list;
+    }
+
+    // Đọc các vé trong đoạn [from, to) của file (một trang của TicketIndex), bỏ
+    // các bản ghi bắt đầu tại vị trí thuộc skip (mảng đã sắp xếp)
+    synchronized ArrayList<Ticket> read(long from, long to, long[] skip) throws IOException {
+        loadPlates();
+        ArrayList<Ticket> list = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            to = Math.min(to, channel.size());
+            scan(channel, from, from + (to - from) / RECORD_SIZE * RECORD_SIZE, skip,
+                    (ticket, offset) -> list.add(ticket));
+        }
+        return list;
+    }
+
+    // Đọc các bản ghi bắt đầu tại từng vị trí trong offsets (vé chưa ra theo
+    // TicketIndex), phần tử tương ứng là null nếu bản ghi không hợp lệ
+    synchronized ArrayList<Ticket> readRows(long[] offsets) throws IOException {
+        loadPlates();
+        ArrayList<Ticket> list = new ArrayList<>(offsets.length);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset : offsets) {
+                if (offset < HEADER_SIZE || (offset - HEADER_SIZE) % RECORD_SIZE != 0
+                        || offset + RECORD_SIZE > size) {
+                    list.add(null);
+                    continue;
+                }
+                record.clear();
+                while (record.hasRemaining()) {
+                    if (channel.read(record, offset + record.position()) < 0)
+                        throw new EOFException(file.getPath());
+                }
+                record.flip();
+                list.add(decode(record));
+            }
+        }
+        return list;
+    }
+
+    // Quét toàn bộ file để dựng chỉ mục vị trí bản ghi (khi chưa có chỉ mục đã
+    // lưu hoặc chỉ mục không khớp)
+    synchronized TicketIndex index() throws IOException {
+        loadPlates();
+        TicketIndex index = new TicketIndex();
+        if (!file.exists())
+            return index;
+        long records = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readHeader(channel);
+            scan(channel, HEADER_SIZE, HEADER_SIZE + records * RECORD_SIZE, null,
+                    (ticket, offset) -> index.addRow(offset, ticket.getTicketID(), ticket.getExitTime(),
+                            offset + EXIT_OFFSET));
+        }
+        return index;
+    }
+
+    // Nhận một vé hợp lệ vừa đọc, offset là vị trí đầu bản ghi
+    private interface RecordHandler {
+        void record(Ticket ticket, long offset);
+    }
+
+    // Đọc các bản ghi trong đoạn [from, to) (đúng ranh giới bản ghi) theo khối
+    // lớn thẳng vào ByteBuffer, không qua từng lời gọi đọc nhỏ. Bản ghi bắt đầu
+    // tại vị trí thuộc skip (nếu có) không được giải mã.
+    private void scan(FileChannel channel, long from, long to, long[] skip, RecordHandler handler)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new EOFException(file.getPath());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                long offset = position + buffer.position();
+                if (skip != null && Arrays.binarySearch(skip, offset) >= 0) {
+                    buffer.position(buffer.position() + RECORD_SIZE);
+                    continue;
+                }
+                Ticket ticket = decode(buffer);
+                if (ticket != null)
+                    handler.record(ticket, offset);
+            }
+            position += buffer.limit();
+        }
+    }
+
+    // Giải mã bản ghi tại vị trí hiện tại của buffer, null nếu trỏ tới biển số
+    // không có trong từ điển
+    private Ticket decode(ByteBuffer buffer) {
+        int ticketID = buffer.getInt();
+        int spotID = buffer.getInt();
+        int plateRef = buffer.getInt();
+        long entry = buffer.getLong();
+        long exit = buffer.getLong();
+        if (plateRef < -1 || plateRef >= plates.size())
+            return null;
+        return new Ticket(ticketID, spotID, plateRef < 0 ? null : plates.get(plateRef),
+                TimestampCodec.fromEpochSecond(entry), TimestampCodec.fromEpochSecond(exit));
+    }
+
+    private void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0)
+                throw new IOException(file + ": thiếu phần đầu file");
+        }
+        header.flip();
+        if (header.getInt() != MAGIC)
+            throw new IOException(file + " không phải file vé nhị phân");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IOException(file + ": không hỗ trợ phiên bản " + version);
+        if (header.getInt() != RECORD_SIZE)
+            throw new IOException(file + ": độ dài bản ghi không hợp lệ");
+    }
+
+    void writeHeader(OutputStream out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+        out.write(header.array());
+    }
+
+    // Mã hóa một vé vào buffer (cấp số thứ tự cho biển số mới nếu cần)
+    synchronized void encode(Ticket ticket, ByteBuffer buffer) throws IOException {
+        buffer.putInt(ticket.getTicketID());
+        buffer.putInt(ticket.getSpotID());
+        buffer.putInt(plateRef(ticket.getLicensePlate()));
+        buffer.putLong(TimestampCodec.toEpochSecond(ticket.getEntryTime()));
+        buffer.putLong(TimestampCodec.toEpochSecond(ticket.getExitTime()));
+    }
+
+    // Ghi đè giờ ra của bản ghi có cột giờ ra tại vị trí offset
+    static void patchExit(RandomAccessFile raf, long offset, LocalDateTime exit) throws IOException {
+        raf.seek(offset);
+        raf.writeLong(TimestampCodec.toEpochSecond(exit));
+    }
+
+    private int plateRef(String plate) throws IOException {
+        if (plate == null)
+            return -1;
+        loadPlates();
+        Integer ref = refByPlate.get(plate);
+        if (ref == null) {
+            ref = plates.size();
+            plates.add(plate);
+            refByPlate.put(plate, ref);
+        }
+        return ref;
+    }
+
+    // Ghi các biển số mới vào cuối từ điển và ép xuống đĩa. Phải gọi trước khi
+    // file vé dùng đến các biển số này xuất hiện trên đĩa.
+    synchronized void flushPlates() throws IOException {
+        if (savedPlates == plates.size())
+            return;
+        StringBuilder sb = new StringBuilder();
+        for (int i = savedPlates; i < plates.size(); i++) {
+            sb.append(plates.get(i)).append('\n');
+        }
+        try (FileOutputStream out = new FileOutputStream(plateFile, true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        savedPlates = plates.size();
+    }
+
+    // Đọc từ điển biển số một lần. Dòng cuối ghi dở (không có ký tự xuống dòng)
+    // bị cắt bỏ để biển số ghi sau không dính vào nó.
+    private void loadPlates() throws IOException {
+        if (platesLoaded)
+            return;
+        plates.clear();
+        refByPlate.clear();
+        if (plateFile.exists()) {
+            byte[] bytes = Files.readAllBytes(plateFile.toPath());
+            int start = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    String plate = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                    plates.add(plate);
+                    refByPlate.putIfAbsent(plate, plates.size() - 1);
+                    start = i + 1;
+                }
+            }
+            if (start < bytes.length) {
+                try (RandomAccessFile raf = new RandomAccessFile(plateFile, "rw")) {
+                    raf.setLength(start);
+                }
+            }
+        }
+        savedPlates = plates.size();
+        platesLoaded = true;
+    }
+}
@@ -0,0 +1,249 @@
+package logic;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Tầng lạnh của lịch sử vé: vé đã đóng từ lâu được lưu dạng cột (mảng số
+ * nguyên) thay vì đối tượng Ticket, khoảng 28 byte mỗi vé so với hơn 100 byte
+ * của một Ticket cùng 2 LocalDateTime. Chỉ đọc và thêm vào cuối; Ticket chỉ được
+ * tạo lại khi có người đọc tới.
+ * Biển số được lưu một lần trong bảng từ điển, mỗi vé chỉ giữ số thứ tự.
+ * Không tự đồng bộ: ParkingLot truy cập dưới historyLock (trừ snapshot).
+ */
+class ColdTicketStore {
+    private int size;
+    private int[] ids = new int[16];
+    private int[] spotIDs = new int[16];
+    private int[] plateRefs = new int[16];
+    // Giờ vào/ra dạng nano giây (xem TimestampCodec.toEpochNano)
+    private long[] entryNanos = new long[16];
+    private long[] exitNanos = new long[16];
+    // Mã vé tăng dần theo thứ tự thêm vào thì tìm theo mã bằng tìm kiếm nhị phân
+    private boolean sortedById = true;
+
+    // Từ điển biển số: biển số gốc -> số thứ tự, kèm biển số đã chuẩn hóa
+    // (bỏ khoảng trắng đầu/cuối, chữ hoa) của từng số thứ tự
+    private final ArrayList<String> plates = new ArrayList<>();
+    private final ArrayList<String> plateKeys = new ArrayList<>();
+    private final HashMap<String, Integer> plateRefByPlate = new HashMap<>();
+    // Biển số đã chuẩn hóa -> vị trí vé đầu tiên của biển số đó
+    private final HashMap<String, Integer> firstIndexByKey = new HashMap<>();
+
+    void add(Ticket ticket) {
+        if (size == ids.length)
+            grow();
+        if (size > 0 && ticket.getTicketID() <= ids[size - 1])
+            sortedById = false;
+        ids[size] = ticket.getTicketID();
+        spotIDs[size] = ticket.getSpotID();
+        int ref = plateRef(ticket.getLicensePlate());
+        plateRefs[size] = ref;
+        if (plateKeys.get(ref) != null)
+            firstIndexByKey.putIfAbsent(plateKeys.get(ref), size);
+        entryNanos[size] = TimestampCodec.toEpochNano(ticket.getEntryTime());
+        exitNanos[size] = TimestampCodec.toEpochNano(ticket.getExitTime());
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Tạo lại vé thứ index (theo thứ tự thêm vào)
+    Ticket get(int index) {
+        return new Ticket(ids[index], spotIDs[index], plates.get(plateRefs[index]),
+                TimestampCodec.fromEpochNano(entryNanos[index]), TimestampCodec.fromEpochNano(exitNanos[index]));
+    }
+
+    // Vé đầu tiên có mã ticketID, null nếu không có
+    Ticket findById(int ticketID) {
+        if (sortedById) {
+            int index = Arrays.binarySearch(ids, 0, size, ticketID);
+            if (index < 0)
+                return null;
+            // Mã trùng nằm liền nhau: lùi về bản ghi đầu tiên
+            while (index > 0 && ids[index - 1] == ticketID)
+                index--;
+            return get(index);
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == ticketID)
+                return get(i);
+        }
+        return null;
+    }
+
+    // Vé đầu tiên (theo thứ tự thêm vào) của biển số đã chuẩn hóa key, null nếu
+    // không có
+    Ticket firstByPlate(String key) {
+        Integer index = firstIndexByKey.get(key);
+        return index == null ? null : get(index);
+    }
+
+    // Đưa các vé vào trang page; chỉ tạo lại vé có mã còn vào được trang
+    void collect(TicketPage page) {
+        // Từ cuối lên: vé mới nhất trước, trang đầy sớm và các vé cũ bị loại ngay
+        for (int i = size - 1; i >= 0; i--) {
+            if (page.accepts(ids[i]))
+                page.offer(get(i));
+        }
+    }
+
+    // Mọi vé của một biển số (so khớp không phân biệt hoa thường, bỏ khoảng
+    // trắng đầu/cuối), theo thứ tự thêm vào
+    ArrayList<Ticket> findByPlate(String licensePlate) {
+        ArrayList<Ticket> result = new ArrayList<>();
+        String key = licensePlate.trim().toUpperCase(Locale.ROOT);
+        Integer first = firstIndexByKey.get(key);
+        if (first == null)
+            return result;
+        // Chỉ duyệt từ điển biển số (ít) rồi so sánh số nguyên trên cột, bắt đầu
+        // từ vé đầu tiên của biển số
+        boolean[] match = new boolean[plateKeys.size()];
+        for (int ref = 0; ref < plateKeys.size(); ref++)
+            match[ref] = key.equals(plateKeys.get(ref));
+        for (int i = first; i < size; i++) {
+            if (match[plateRefs[i]])
+                result.add(get(i));
+        }
+        return result;
+    }
+
+    /*
+     * Bỏ các vé trong count vé đầu tiên (theo thứ tự thêm vào) có giờ ra trước
+     * time, vd: vé đã được cuộn ra phân đoạn tháng trên đĩa. Trả về các vé đã bỏ.
+     * Phần còn lại được chép sang mảng mới nên ảnh chụp đang được duyệt
+     * (snapshot) không bị ảnh hưởng.
+     */
+    ArrayList<Ticket> removeClosedBefore(int count, LocalDateTime time) {
+        ArrayList<Ticket> removed = new ArrayList<>();
+        long before = TimestampCodec.toEpochNano(time);
+        int capacity = ids.length;
+        int[] keptIds = new int[capacity];
+        int[] keptSpotIDs = new int[capacity];
+        int[] keptPlateRefs = new int[capacity];
+        long[] keptEntryNanos = new long[capacity];
+        long[] keptExitNanos = new long[capacity];
+        int kept = 0;
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            if (i < count && exitNanos[i] != TimestampCodec.NO_TIME && exitNanos[i] < before) {
+                removed.add(get(i));
+                continue;
+            }
+            if (kept > 0 && ids[i] <= keptIds[kept - 1])
+                sorted = false;
+            keptIds[kept] = ids[i];
+            keptSpotIDs[kept] = spotIDs[i];
+            keptPlateRefs[kept] = plateRefs[i];
+            keptEntryNanos[kept] = entryNanos[i];
+            keptExitNanos[kept] = exitNanos[i];
+            kept++;
+        }
+        if (removed.isEmpty())
+            return removed;
+        ids = keptIds;
+        spotIDs = keptSpotIDs;
+        plateRefs = keptPlateRefs;
+        entryNanos = keptEntryNanos;
+        exitNanos = keptExitNanos;
+        size = kept;
+        sortedById = sorted;
+        firstIndexByKey.clear();
+        for (int i = 0; i < size; i++) {
+            String key = plateKeys.get(plateRefs[i]);
+            if (key != null)
+                firstIndexByKey.putIfAbsent(key, i);
+        }
+        return removed;
+    }
+
+    void clear() {
+        size = 0;
+        ids = new int[16];
+        spotIDs = new int[16];
+        plateRefs = new int[16];
+        entryNanos = new long[16];
+        exitNanos = new long[16];
+        sortedById = true;
+        plates.clear();
+        plateKeys.clear();
+        plateRefByPlate.clear();
+        firstIndexByKey.clear();
+    }
+
+    // Duyệt các vé (tạo lại từng vé khi cần, không giữ lại)
+    Iterable<Ticket> tickets() {
+        return () -> new Iterator<Ticket>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Ticket next() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    // Ảnh chụp các vé hiện có, duyệt được mà không cần giữ historyLock: vé chỉ
+    // được thêm vào sau vị trí size (hoặc vào mảng mới khi giãn/clear) nên phần
+    // đã chụp không bao giờ bị sửa
+    Iterable<Ticket> snapshot() {
+        int count = size;
+        int[] ids = this.ids;
+        int[] spotIDs = this.spotIDs;
+        int[] plateRefs = this.plateRefs;
+        long[] entryNanos = this.entryNanos;
+        long[] exitNanos = this.exitNanos;
+        String[] plates = this.plates.toArray(new String[0]);
+        return () -> new Iterator<Ticket>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Ticket next() {
+                if (next >= count)
+                    throw new NoSuchElementException();
+                int i = next++;
+                return new Ticket(ids[i], spotIDs[i], plates[plateRefs[i]],
+                        TimestampCodec.fromEpochNano(entryNanos[i]), TimestampCodec.fromEpochNano(exitNanos[i]));
+            }
+        };
+    }
+
+    private int plateRef(String plate) {
+        Integer ref = plateRefByPlate.get(plate);
+        if (ref == null) {
+            ref = plates.size();
+            plates.add(plate);
+            plateKeys.add(plate == null ? null : plate.trim().toUpperCase(Locale.ROOT));
+            plateRefByPlate.put(plate, ref);
+        }
+        return ref;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        spotIDs = Arrays.copyOf(spotIDs, capacity);
+        plateRefs = Arrays.copyOf(plateRefs, capacity);
+        entryNanos = Arrays.copyOf(entryNanos, capacity);
+        exitNanos = Arrays.copyOf(exitNanos, capacity);
+    }
+}
@@ -0,0 +1,271 @@
+package logic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Tách dòng CSV trực tiếp trên byte, thay cho readLine + split(",") + trim: mỗi
+ * dòng chỉ được quét một lần, vị trí các trường được ghi vào mảng dùng lại cho
+ * mọi dòng; số nguyên, boolean và enum được đọc tại chỗ. Chỉ những chuỗi thật
+ * sự được giữ lại (biển số, họ tên...) mới được tạo.
+ *
+ * Hai cách dùng:
+ * - Đọc tuần tự một InputStream (nextLine), dữ liệu được đọc vào một mảng byte
+ * dùng lại, dòng dài hơn mảng thì mảng được giãn ra.
+ * - Tách một dòng nằm sẵn trong ByteBuffer của nơi khác (split), vd: vùng nhớ
+ * ánh xạ của MappedTicketReader.
+ *
+ * Kết quả giống String.split(","): trường rỗng ở cuối dòng không được tính vào
+ * fieldCount; trường có dấu phẩy bên trong bị tách như cũ. Các dấu phân cách
+ * được tìm theo byte nên bảng mã phải tương thích ASCII. Không dùng chung giữa
+ * nhiều luồng.
+ */
+class CsvTokenizer {
+    private final InputStream in;
+    private final Charset charset;
+    // Buffer chứa dòng hiện tại
+    private ByteBuffer data;
+    // Vị trí bắt đầu/kết thúc (không gồm) của từng trường
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount;
+
+    // Chế độ đọc tuần tự: buffer bọc mảng bytes, phần chưa đọc là [next, limit)
+    private byte[] bytes;
+    private int next;
+    private int limit;
+    private boolean eof;
+    // Dòng trước kết thúc bằng '\r': bỏ qua '\n' ngay sau đó (dòng kiểu Windows)
+    private boolean skipLineFeed;
+
+    // Mảng tạm để giải mã chuỗi khi buffer không có mảng bên dưới (vùng nhớ ánh xạ)
+    private byte[] scratch = new byte[64];
+    // Xem trường dưới dạng CharSequence mà không tạo chuỗi (xem trimmedText)
+    private final FieldText text = new FieldText();
+
+    CsvTokenizer(InputStream in, Charset charset) {
+        this.in = in;
+        this.charset = charset;
+        this.bytes = new byte[1 << 16];
+        this.data = ByteBuffer.wrap(bytes);
+    }
+
+    // Chỉ dùng split trên buffer có sẵn
+    CsvTokenizer(Charset charset) {
+        this.in = null;
+        this.charset = charset;
+    }
+
+    // Đọc và tách dòng kế tiếp (không gồm ký tự xuống dòng), false khi hết dữ liệu
+    boolean nextLine() throws IOException {
+        int scan = next;
+        while (true) {
+            if (skipLineFeed && scan < limit) {
+                skipLineFeed = false;
+                if (bytes[scan] == '\n')
+                    next = ++scan;
+            }
+            for (; scan < limit; scan++) {
+                byte b = bytes[scan];
+                if (b == '\n' || b == '\r') {
+                    split(data, next, scan);
+                    skipLineFeed = b == '\r';
+                    next = scan + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (next == limit)
+                    return false;
+                split(data, next, limit); // dòng cuối không có ký tự xuống dòng
+                next = limit;
+                return true;
+            }
+            scan -= next;
+            fill();
+        }
+    }
+
+    // Dồn phần chưa đọc về đầu mảng (giãn mảng nếu dòng dài hơn mảng) rồi đọc tiếp
+    private void fill() throws IOException {
+        int remaining = limit - next;
+        if (remaining == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            data = ByteBuffer.wrap(bytes);
+        } else {
+            System.arraycopy(bytes, next, bytes, 0, remaining);
+        }
+        next = 0;
+        limit = remaining;
+        int read = in.read(bytes, limit, bytes.length - limit);
+        if (read < 0)
+            eof = true;
+        else
+            limit += read;
+    }
+
+    // Tách dòng [start, end) của buffer thành các trường
+    void split(ByteBuffer buffer, int start, int end) {
+        data = buffer;
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = fieldStart;
+                ends[count] = i;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        // Như String.split: bỏ các trường rỗng ở cuối (dòng rỗng vẫn là 1 trường)
+        while (count > 1 && starts[count - 1] == ends[count - 1])
+            count--;
+        fieldCount = count;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    // Trường i giữ nguyên khoảng trắng
+    String field(int i) {
+        return decode(starts[i], ends[i]);
+    }
+
+    // Trường i đã bỏ khoảng trắng đầu/cuối (như String.trim)
+    String trimmedField(int i) {
+        int start = trimStart(i);
+        return decode(start, trimEnd(i, start));
+    }
+
+    // Trường i đã trim dưới dạng CharSequence không tạo chuỗi mới (mỗi byte một
+    // ký tự, chỉ đúng với trường ASCII như số, giờ). Dùng lại cho mọi lời gọi:
+    // chỉ hợp lệ tới lần gọi kế tiếp.
+    CharSequence trimmedText(int i) {
+        text.start = trimStart(i);
+        text.end = trimEnd(i, text.start);
+        return text;
+    }
+
+    // Trường i (đã trim) có đúng bằng chuỗi ASCII value không, không tạo chuỗi mới
+    boolean fieldEquals(int i, String value) {
+        int start = trimStart(i);
+        int end = trimEnd(i, start);
+        if (end - start != value.length())
+            return false;
+        for (int k = 0; k < value.length(); k++) {
+            if (data.get(start + k) != value.charAt(k))
+                return false;
+        }
+        return true;
+    }
+
+    // Như Integer.parseInt(trường i đã trim)
+    int intField(int i) {
+        int start = trimStart(i);
+        int end = trimEnd(i, start);
+        boolean negative = false;
+        if (start < end && (data.get(start) == '-' || data.get(start) == '+')) {
+            negative = data.get(start) == '-';
+            start++;
+        }
+        if (start == end)
+            throw numberFormat(i);
+        // Tích lũy số âm để biểu diễn được Integer.MIN_VALUE
+        int result = 0;
+        for (int k = start; k < end; k++) {
+            int digit = data.get(k) - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10)
+                throw numberFormat(i);
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Integer.MIN_VALUE)
+                throw numberFormat(i);
+            result = -result;
+        }
+        return result;
+    }
+
+    // Như Boolean.parseBoolean(trường i đã trim)
+    boolean booleanField(int i) {
+        int start = trimStart(i);
+        int end = trimEnd(i, start);
+        if (end - start != 4)
+            return false;
+        return (data.get(start) | 0x20) == 't' && (data.get(start + 1) | 0x20) == 'r'
+                && (data.get(start + 2) | 0x20) == 'u' && (data.get(start + 3) | 0x20) == 'e';
+    }
+
+    // Như Enum.valueOf(trường i đã trim), values là mảng values() của enum (để
+    // không phải tạo lại mảng cho mỗi dòng)
+    <E extends Enum<E>> E enumField(int i, E[] values) {
+        for (E value : values) {
+            if (fieldEquals(i, value.name()))
+                return value;
+        }
+        throw new IllegalArgumentException(
+                "No enum constant " + values[0].getDeclaringClass().getName() + "." + trimmedField(i));
+    }
+
+    private NumberFormatException numberFormat(int i) {
+        return new NumberFormatException("For input string: \"" + trimmedField(i) + "\"");
+    }
+
+    private int trimStart(int i) {
+        int start = starts[i];
+        while (start < ends[i] && (data.get(start) & 0xff) <= ' ')
+            start++;
+        return start;
+    }
+
+    private int trimEnd(int i, int start) {
+        int end = ends[i];
+        while (end > start && (data.get(end - 1) & 0xff) <= ' ')
+            end--;
+        return end;
+    }
+
+    private class FieldText implements CharSequence {
+        private int start;
+        private int end;
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return decode(start, end);
+        }
+    }
+
+    private String decode(int start, int end) {
+        if (data.hasArray())
+            return new String(data.array(), data.arrayOffset() + start, end - start, charset);
+        int length = end - start;
+        if (scratch.length < length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        for (int k = 0; k < length; k++)
+            scratch[k] = data.get(start + k);
+        return new String(scratch, 0, length, charset);
+    }
+}
@@ -1,45 +1,521 @@
 package logic;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DataManager {
+    // Định dạng lưu file vé: CSV (tickets.csv) hoặc nhị phân (tickets.bin +
+    // tickets.plates, xem BinaryTicketFile)
+    public enum TicketFormat {
+        CSV, BINARY
+    }
+
+    // Thư mục dữ liệu mặc định
+    private static final String DEFAULT_DATA_DIR = "data";
+    // Khóa lưu mã vé lớn nhất đã cấp
+    private static final String LAST_TICKET_ID = "lastTicketID";
+    // Vé chưa ra được ghi cột giờ ra rộng cố định (đủ cho yyyy-MM-ddTHH:mm:ss.nnnnnnnnn)
+    // để khi xe ra có thể ghi đè giờ ra ngay tại chỗ, không phải ghi lại cả file.
+    // Phần đệm là dấu phẩy: split(",") bỏ các trường rỗng ở cuối dòng nên bản cũ
+    // và công cụ đọc CSV đơn giản vẫn đọc được file (xem padExit).
+    private static final int EXIT_WIDTH = 29;
+    // Bảng mã mặc định (FileReader khi đọc cũng dùng), vị trí byte tính theo bảng mã này
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[] NEW_LINE = System.lineSeparator().getBytes(CHARSET);
+
     // Đường dẫn đến file lưu trữ thông tin xe
-    private static final String VEHICLE_FILE = "data/vehicles.csv";
+    private final String vehicleFile;
     // Đường dẫn đến file lưu trữ thông tin chỗ đỗ
-    private static final String SPOT_FILE = "data/spots.csv";
+    private final String spotFile;
     // Đường dẫn đến file lưu trữ thông tin vé
-    private static final String TICKET_FILE = "data/tickets.csv";
+    private final String ticketFile;
+    // Đường dẫn đến file lưu các thông số hệ thống (dạng key,value)
+    private final String metaFile;
+    // Đường dẫn đến nhật ký thay đổi kể từ lần lưu gần nhất (xem Journal)
+    private final String journalFile;
+    // Thư mục chứa các phân đoạn tháng của lịch sử vé (xem TicketSegment)
+    private final File segmentDir;
+    // File vé dạng nhị phân và định dạng đang dùng
+    private final BinaryTicketFile binaryTickets;
+    private TicketFormat ticketFormat;
+    // false: ghi file vé CSV đúng dạng Ticket.toString, không đệm cột giờ ra
+    // (xem setPadOpenTickets)
+    private boolean padOpenTickets = true;
+
+    // Chỉ mục vị trí dòng của file vé (gồm vị trí cột giờ ra của các vé chưa
+    // ra, xem TicketIndex) và độ dài file vé sau lần ghi/nạp gần nhất (-1: chưa
+    // biết). Chỉ mục được lưu kèm file vé để lần khởi động sau dùng lại.
+    private TicketIndex ticketIndex = new TicketIndex();
+    private long ticketFileLength = -1;
+    // Lịch sử vé chưa nạp của lần loadOpenTickets gần nhất. Việc thay file vé
+    // (ghi lại toàn bộ) giữ khóa ghi, đọc trang lịch sử giữ khóa đọc.
+    private TicketHistory ticketHistory = TicketHistory.EMPTY;
+    private final ReentrantReadWriteLock ticketFileLock = new ReentrantReadWriteLock();
 
     public DataManager() {
-        // Đảm bảo thư mục "data" tồn tại để tránh lỗi khi ghi file
-        new File("data").mkdirs();
+        this(DEFAULT_DATA_DIR);
+    }
+
+    // Dùng thư mục dữ liệu khác (benchmark, mô phỏng, nhiều bãi đỗ trên một máy)
+    public DataManager(String dataDir) {
+        vehicleFile = new File(dataDir, "vehicles.csv").getPath();
+        spotFile = new File(dataDir, "spots.csv").getPath();
+        ticketFile = new File(dataDir, "tickets.csv").getPath();
+        metaFile = new File(dataDir, "meta.csv").getPath();
+        journalFile = new File(dataDir, "journal.log").getPath();
+        segmentDir = new File(dataDir);
+        binaryTickets = new BinaryTicketFile(new File(dataDir, "tickets.bin").getPath(),
+                new File(dataDir, "tickets.plates").getPath());
+        // Có file vé nhị phân thì dùng định dạng nhị phân (xem ConvertTickets)
+        ticketFormat = binaryTickets.exists() ? TicketFormat.BINARY : TicketFormat.CSV;
+        // Đảm bảo thư mục dữ liệu tồn tại để tránh lỗi khi ghi file
+        new File(dataDir).mkdirs();
+    }
+
+    public TicketFormat getTicketFormat() {
+        return ticketFormat;
+    }
+
+    // Đổi định dạng file vé dùng cho các lần đọc/ghi sau (file cũ giữ nguyên)
+    public void setTicketFormat(TicketFormat ticketFormat) {
+        if (ticketFormat == this.ticketFormat)
+            return;
+        this.ticketFormat = ticketFormat;
+        ticketIndex = new TicketIndex();
+        ticketFileLength = -1;
+        ticketHistory = TicketHistory.EMPTY;
+    }
+
+    // Có đệm cột giờ ra của vé chưa ra trong file vé CSV không (mặc định có).
+    // Tắt để xuất file vé cho bản cũ/công cụ khác (ConvertTickets plain); khi
+    // đó vé đóng sau này không ghi đè được tại chỗ, lần lưu sau ghi lại cả file.
+    public void setPadOpenTickets(boolean padOpenTickets) {
+        this.padOpenTickets = padOpenTickets;
+    }
+
+    // Đường dẫn file vé theo định dạng đang dùng
+    public String getTicketFile() {
+        return ticketFormat == TicketFormat.BINARY ? binaryTickets.getFilename() : ticketFile;
+    }
+
+    // File chỉ mục đi kèm file vé (xem TicketIndex)
+    private String getTicketIndexFile() {
+        return getTicketFile() + ".idx";
     }
 
     // --- PHẦN GHI (SAVE) ---
+    // Mọi file CSV đều được ghi an toàn (xem writeAtomically): tắt máy giữa lúc
+    // lưu không làm hỏng bản đang có trên đĩa.
+
     // Lưu toàn bộ dữ liệu (xe, chỗ đỗ, vé) vào các file CSV tương ứng
-    public void saveData(ArrayList<Vehicle> vehicles, ArrayList<ParkingSpot> spots, ArrayList<Ticket> tickets)
+    // tickets chỉ cần duyệt được (ParkingLot ghi cả vé tầng lạnh mà không phải
+    // tạo danh sách đầy đủ trong bộ nhớ)
+    public void saveData(ArrayList<Vehicle> vehicles, ArrayList<ParkingSpot> spots, Iterable<Ticket> tickets)
             throws IOException {
-        saveList(VEHICLE_FILE, vehicles); // Lưu danh sách xe
-        saveList(SPOT_FILE, spots); // Lưu danh sách chỗ đỗ
-        saveList(TICKET_FILE, tickets); // Lưu danh sách vé
+        saveVehicles(vehicles); // Lưu danh sách xe
+        saveSpots(spots); // Lưu danh sách chỗ đỗ
+        saveTickets(tickets); // Lưu danh sách vé
+    }
+
+    // Lưu riêng từng file (ParkingLot chỉ ghi lại file có thay đổi)
+    public void saveVehicles(ArrayList<Vehicle> vehicles) throws IOException {
+        saveList(vehicleFile, vehicles);
+    }
+
+    public void saveSpots(ArrayList<ParkingSpot> spots) throws IOException {
+        saveList(spotFile, spots);
+    }
+
+    // Ghi lại toàn bộ lịch sử vé với đúng các vé trong tickets: tất cả vào file
+    // vé, các phân đoạn tháng đang có bị xóa (công cụ chuyển đổi, benchmark)
+    public void saveTickets(Iterable<Ticket> tickets) throws IOException {
+        saveTickets(TicketHistory.EMPTY, tickets, null);
+    }
+
+    // Ghi một vé vào file vé đang ghi hoặc vào phân đoạn tháng (xem saveTickets)
+    private interface TicketSink {
+        void write(Ticket ticket) throws IOException;
+    }
+
+    /*
+     * Ghi lại toàn bộ file vé: các vé trong file vé của history (lịch sử chưa
+     * nạp, đọc từ file cũ) trước, sau đó là tickets. Nếu có openMonth, các vé đã
+     * đóng trước tháng đó được cuộn ra phân đoạn tháng mới (TicketSegment) thay
+     * vì ghi vào file vé: file vé chỉ còn vé chưa ra và vé của các tháng còn mở.
+     * Phân đoạn của history được giữ nguyên, các phân đoạn khác trên đĩa bị xóa.
+     * Đồng thời dựng lại chỉ mục (vị trí cột giờ ra của các vé chưa ra để lần sau
+     * chỉ cần sửa tại chỗ).
+     *
+     * Phân đoạn mới được ghi xong trước khi thay file vé; tắt máy giữa hai bước
+     * thì file vé cũ vẫn còn các vé đó và loadOpenTickets xóa phân đoạn thừa.
+     *
+     * history được nối tới bản mô tả chỉ gồm các vé của chính nó (phần đầu file
+     * mới và phần đầu các phân đoạn mới), nên ai đang đọc history cùng ảnh chụp
+     * bộ nhớ cũ không thấy vé trùng. Trả về lịch sử gồm mọi phân đoạn (kể cả vé
+     * của tickets vừa được cuộn) và phần đầu file mới: người gọi bỏ các vé đã
+     * cuộn khỏi bộ nhớ rồi dùng lịch sử này (xem ParkingLot.saveAllData).
+     */
+    TicketHistory saveTickets(TicketHistory history, Iterable<Ticket> tickets, YearMonth openMonth)
+            throws IOException {
+        ticketIndex = new TicketIndex();
+        ticketFileLength = -1;
+        boolean binary = ticketFormat == TicketFormat.BINARY;
+        LocalDateTime rollBefore = openMonth == null ? null : openMonth.atDay(1).atStartOfDay();
+        TicketSegment[] kept = history.latest().segments();
+        ArrayList<TicketSegment> onDisk = TicketSegment.list(segmentDir, CHARSET);
+        TreeMap<YearMonth, TicketSegment.Writer> writers = new TreeMap<>();
+        // Số vé đầu của mỗi phân đoạn mới đến từ history
+        HashMap<YearMonth, Integer> historyRows = new HashMap<>();
+        long[] length = new long[1];
+        TicketHistory[] copied = new TicketHistory[1];
+        ArrayList<TicketSegment> added = new ArrayList<>();
+        Path temp;
+        try {
+            temp = writeTemp(getTicketFile(), out -> {
+                ByteBuffer record = ByteBuffer.allocate(BinaryTicketFile.RECORD_SIZE);
+                if (binary) {
+                    binaryTickets.writeHeader(out);
+                    length[0] = BinaryTicketFile.HEADER_SIZE;
+                }
+                TicketSink sink = ticket -> {
+                    if (!roll(ticket, rollBefore, writers, onDisk))
+                        length[0] += binary ? writeBinaryTicket(out, ticket, length[0], record)
+                                : writeTicket(out, ticket, length[0]);
+                };
+                try {
+                    history.forEachInTicketFile(ticket -> {
+                        try {
+                            sink.write(ticket);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                copied[0] = ticketIndex.history(pageReader(), ticketFileLock, new TicketSegment[0], length[0],
+                        new long[0]);
+                for (TicketSegment.Writer writer : writers.values())
+                    historyRows.put(writer.getMonth(), writer.getRows());
+                for (Ticket ticket : tickets)
+                    sink.write(ticket);
+            });
+            // Biển số mới phải nằm trên đĩa trước file vé dùng đến chúng
+            if (binary)
+                binaryTickets.flushPlates();
+            for (TicketSegment.Writer writer : writers.values()) {
+                TicketSegment segment = writer.finish();
+                moveIntoPlace(writer.getTemp().toPath(), writer.getTarget().getPath());
+                added.add(segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            // File vé cũ còn nguyên: bỏ file vé tạm và các phân đoạn mới
+            new File(getTicketFile() + ".tmp").delete();
+            for (TicketSegment.Writer writer : writers.values())
+                writer.abort();
+            for (TicketSegment segment : added)
+                segment.getFile().delete();
+            throw e;
+        }
+
+        ArrayList<TicketSegment> all = new ArrayList<>(Arrays.asList(kept));
+        ArrayList<TicketSegment> own = new ArrayList<>(Arrays.asList(kept));
+        for (TicketSegment segment : added) {
+            all.add(segment);
+            int rows = historyRows.getOrDefault(segment.getMonth(), 0);
+            if (rows > 0)
+                own.add(segment.limit(rows));
+        }
+        all.sort(TicketSegment.ORDER);
+        own.sort(TicketSegment.ORDER);
+        ticketFileLock.writeLock().lock();
+        try {
+            moveIntoPlace(temp, getTicketFile());
+            HashSet<File> keep = new HashSet<>();
+            for (TicketSegment segment : all)
+                keep.add(segment.getFile());
+            for (TicketSegment segment : onDisk) {
+                if (!keep.contains(segment.getFile()))
+                    segment.getFile().delete();
+            }
+            if (history != TicketHistory.EMPTY)
+                history.latest().replaceWith(copied[0].withSegments(own.toArray(new TicketSegment[0])));
+        } finally {
+            ticketFileLock.writeLock().unlock();
+        }
+        ticketFileLength = length[0];
+        writeTicketIndex();
+        return copied[0].withSegments(all.toArray(new TicketSegment[0]));
+    }
+
+    // Ghi vé vào phân đoạn tháng của giờ ra nếu vé đã đóng trước rollBefore
+    // (null: không cuộn), false nếu vé thuộc file vé
+    private boolean roll(Ticket ticket, LocalDateTime rollBefore, TreeMap<YearMonth, TicketSegment.Writer> writers,
+            List<TicketSegment> onDisk) throws IOException {
+        LocalDateTime exit = ticket.getExitTime();
+        if (rollBefore == null || exit == null || !exit.isBefore(rollBefore))
+            return false;
+        YearMonth month = YearMonth.from(exit);
+        TicketSegment.Writer writer = writers.get(month);
+        if (writer == null) {
+            // Phân đoạn đã ghi không bao giờ bị sửa: tháng đã có thì ghi lần cuộn tiếp theo
+            writer = new TicketSegment.Writer(segmentDir, month, TicketSegment.nextPart(onDisk, month), CHARSET);
+            writers.put(month, writer);
+        }
+        writer.add(ticket);
+        return true;
+    }
+
+    // File vé còn vé đã đóng trước tháng openMonth, cần ghi lại toàn bộ để cuộn
+    // chúng ra phân đoạn tháng (xem saveTickets)
+    public boolean hasTicketsToRoll(YearMonth openMonth) {
+        return ticketIndex.hasExitBefore(openMonth.atDay(1).atStartOfDay());
+    }
+
+    /*
+     * Có lưu tăng dần được file vé không (xem appendTickets): được nếu file là
+     * do DataManager này ghi ra hoặc nạp lần gần nhất và mọi vé vừa đóng (không
+     * nằm trong added) đều đã biết vị trí cột giờ ra. Vé nạp từ file chưa có chỉ
+     * mục đã lưu chưa biết vị trí, khi đó cần saveTickets.
+     */
+    public boolean canAppendTickets(List<Ticket> added, Collection<Ticket> closed) {
+        if (added.isEmpty() && closed.isEmpty())
+            return true;
+        if (ticketFileLength < 0 || new File(getTicketFile()).length() != ticketFileLength)
+            return false;
+        HashSet<Integer> addedIDs = ticketIDs(added);
+        for (Ticket ticket : closed) {
+            if (addedIDs.contains(ticket.getTicketID()))
+                continue; // dòng mới được ghi kèm giờ ra luôn
+            long[] row = ticketIndex.openRow(ticket.getTicketID());
+            if (row == null || row[1] < 0)
+                return false;
+            if (ticketFormat == TicketFormat.CSV && TimestampCodec.format(ticket.getExitTime()).length() > EXIT_WIDTH)
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * Lưu tăng dần file vé: ghi thêm các vé mới vào cuối file và ghi đè giờ ra
+     * của các vé vừa đóng ngay tại dòng của chúng, không ghi lại lịch sử cũ.
+     * Chỉ gọi khi canAppendTickets trả về true. Khác các hàm lưu khác, file được
+     * sửa trực tiếp: tắt máy giữa chừng có thể làm hỏng vài dòng cuối/dòng vừa
+     * sửa, loadTickets bỏ qua dòng hỏng và nhật ký thay đổi (chưa bị xóa cho tới
+     * khi lưu xong) khôi phục lại chúng.
+     */
+    public void appendTickets(List<Ticket> added, Collection<Ticket> closed) throws IOException {
+        if (added.isEmpty() && closed.isEmpty())
+            return;
+        if (!canAppendTickets(added, closed))
+            throw new IOException("Không thể ghi tiếp file vé " + ticketFile + ", cần ghi lại toàn bộ");
+        HashSet<Integer> addedIDs = ticketIDs(added);
+
+        // Đánh dấu chưa biết trước khi ghi: lỗi giữa chừng thì lần sau ghi lại toàn bộ
+        long length = ticketFileLength;
+        ticketFileLength = -1;
+        boolean binary = ticketFormat == TicketFormat.BINARY;
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        ByteBuffer record = ByteBuffer.allocate(BinaryTicketFile.RECORD_SIZE);
+        for (Ticket ticket : added) {
+            if (binary)
+                writeBinaryTicket(rows, ticket, length + rows.size(), record);
+            else
+                writeTicket(rows, ticket, length + rows.size());
+        }
+        if (binary)
+            binaryTickets.flushPlates();
+        try (RandomAccessFile raf = new RandomAccessFile(getTicketFile(), "rw")) {
+            for (Ticket ticket : closed) {
+                if (addedIDs.contains(ticket.getTicketID()))
+                    continue;
+                long offset = ticketIndex.closeRow(ticket.getTicketID(), ticket.getExitTime())[1];
+                if (binary) {
+                    BinaryTicketFile.patchExit(raf, offset, ticket.getExitTime());
+                } else {
+                    raf.seek(offset);
+                    raf.write(padExit(TimestampCodec.format(ticket.getExitTime())).getBytes(CHARSET));
+                }
+            }
+            raf.seek(length);
+            raf.write(rows.toByteArray());
+            length += rows.size();
+            raf.getFD().sync();
+        }
+        ticketFileLength = length;
+        writeTicketIndex();
+    }
+
+    private static HashSet<Integer> ticketIDs(List<Ticket> tickets) {
+        HashSet<Integer> ids = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            ids.add(ticket.getTicketID());
+        }
+        return ids;
+    }
+
+    // Ghi một dòng vé bắt đầu tại vị trí offset, trả về số byte đã ghi
+    private int writeTicket(OutputStream out, Ticket ticket, long offset) throws IOException {
+        // Cùng dạng với Ticket.toString, riêng giờ ra "null" được nới rộng cột
+        StringBuilder row = new StringBuilder(64);
+        row.append(ticket.getTicketID()).append(',').append(ticket.getSpotID()).append(',')
+                .append(ticket.getLicensePlate()).append(',');
+        TimestampCodec.append(row, ticket.getEntryTime()).append(',');
+        boolean padded = padOpenTickets && ticket.getExitTime() == null;
+        if (padded)
+            row.append(padExit("null"));
+        else
+            TimestampCodec.append(row, ticket.getExitTime());
+        byte[] bytes = row.toString().getBytes(CHARSET);
+        ticketIndex.addRow(offset, ticket.getTicketID(), ticket.getExitTime(),
+                padded ? offset + bytes.length - EXIT_WIDTH : -1);
+        out.write(bytes);
+        out.write(NEW_LINE);
+        return bytes.length + NEW_LINE.length;
+    }
+
+    // Ghi một bản ghi vé nhị phân bắt đầu tại vị trí offset, trả về số byte đã ghi
+    private int writeBinaryTicket(OutputStream out, Ticket ticket, long offset, ByteBuffer record)
+            throws IOException {
+        record.clear();
+        binaryTickets.encode(ticket, record);
+        boolean open = ticket.getExitTime() == null;
+        ticketIndex.addRow(offset, ticket.getTicketID(), ticket.getExitTime(),
+                open ? offset + BinaryTicketFile.EXIT_OFFSET : -1);
+        out.write(record.array());
+        return BinaryTicketFile.RECORD_SIZE;
+    }
+
+    // Lưu chỉ mục của file vé vừa ghi, kèm độ dài và giờ sửa của file. Chỉ mục
+    // chỉ để khởi động nhanh: ghi lỗi thì xóa đi, lần sau quét lại file vé.
+    private void writeTicketIndex() {
+        File file = new File(getTicketFile());
+        long length = file.length();
+        long modified = file.lastModified();
+        try {
+            writeAtomically(getTicketIndexFile(), out -> ticketIndex.write(out, length, modified));
+        } catch (IOException e) {
+            new File(getTicketIndexFile()).delete();
+        }
+    }
+
+    // Giờ ra đệm dấu phẩy tới EXIT_WIDTH ký tự ("null,,,,..."): với split(",")
+    // hay CsvTokenizer đó vẫn là trường giờ ra rồi các trường rỗng ở cuối dòng
+    private static String padExit(String value) {
+        StringBuilder sb = new StringBuilder(EXIT_WIDTH);
+        sb.append(value);
+        while (sb.length() < EXIT_WIDTH)
+            sb.append(',');
+        return sb.toString();
+    }
+
+    // Lưu mã vé lớn nhất đã cấp để bộ sinh mã vé không bị lùi lại sau khi khởi
+    // động lại (kể cả khi vé cũ đã bị xóa/lưu trữ)
+    public void saveLastTicketID(int lastTicketID) throws IOException {
+        LinkedHashMap<String, String> meta = loadMeta();
+        meta.put(LAST_TICKET_ID, String.valueOf(lastTicketID));
+        saveMeta(meta);
+    }
+
+    // Nhật ký thay đổi của thư mục dữ liệu này (ParkingLot ghi và đọc lại)
+    Journal openJournal() {
+        return new Journal(journalFile);
+    }
+
+    // Xóa nhật ký thay đổi: lần nạp sau chỉ dùng các file CSV
+    public void deleteJournal() {
+        new File(journalFile).delete();
+    }
+
+    // Ghi toàn bộ thông số hệ thống, mỗi dòng một cặp key,value
+    private void saveMeta(LinkedHashMap<String, String> meta) throws IOException {
+        writeAtomically(metaFile, out -> {
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, CHARSET));
+            for (String key : meta.keySet()) {
+                bw.write(key + "," + meta.get(key));
+                bw.newLine();
+            }
+            bw.flush();
+        });
     }
 
     // Hàm generic (dùng chung) để ghi một danh sách bất kỳ vào file
     // <T> là kiểu dữ liệu của các phần tử trong danh sách (Vehicle, ParkingSpot,
     // Ticket)
-    private <T> void saveList(String filename, ArrayList<T> list) throws IOException {
-        // Sử dụng BufferedWriter để ghi file hiệu quả hơn
-        BufferedWriter bw = new BufferedWriter(new FileWriter(filename));
-        for (T item : list) {
-            // Gọi phương thức toString() của đối tượng để lấy chuỗi định dạng CSV
-            bw.write(item.toString());
-            // Xuống dòng sau mỗi bản ghi
-            bw.newLine();
+    private <T> void saveList(String filename, Iterable<T> list) throws IOException {
+        writeAtomically(filename, out -> {
+            // Sử dụng BufferedWriter để ghi file hiệu quả hơn
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, CHARSET));
+            for (T item : list) {
+                // Gọi phương thức toString() của đối tượng để lấy chuỗi định dạng CSV
+                bw.write(item.toString());
+                // Xuống dòng sau mỗi bản ghi
+                bw.newLine();
+            }
+            bw.flush();
+        });
+    }
+
+    // Nội dung cần ghi ra một file
+    private interface FileContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Ghi file an toàn: ghi ra file tạm cùng thư mục, ép xuống đĩa (fsync) rồi
+    // đổi tên đè lên file cũ trong một bước. Tắt máy lúc nào thì trên đĩa cũng
+    // là file cũ nguyên vẹn hoặc file mới đầy đủ, không bao giờ là file ghi dở.
+    private static void writeAtomically(String filename, FileContent content) throws IOException {
+        moveIntoPlace(writeTemp(filename, content), filename);
+    }
+
+    // Bước 1: ghi nội dung ra file tạm và ép xuống đĩa
+    private static Path writeTemp(String filename, FileContent content) throws IOException {
+        Path temp = Paths.get(filename + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile())) {
+            OutputStream out = new BufferedOutputStream(fos, 1 << 16);
+            content.writeTo(out);
+            out.flush();
+            fos.getFD().sync();
+        }
+        return temp;
+    }
+
+    // Bước 2: đổi tên file tạm đè lên file đích
+    private static void moveIntoPlace(Path temp, String filename) throws IOException {
+        Path target = Paths.get(filename);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Ghi cả thư mục để phép đổi tên không bị mất khi mất điện (không phải hệ
+        // điều hành nào cũng cho mở thư mục, khi đó bỏ qua)
+        Path dir = target.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // bỏ qua
         }
-        // Đóng luồng ghi để giải phóng tài nguyên và đảm bảo dữ liệu được lưu
-        bw.close();
     }
 
     // --- PHẦN ĐỌC (LOAD) ---
@@ -47,31 +523,25 @@ public class DataManager {
     // Đọc danh sách xe từ file CSV
     public ArrayList<Vehicle> loadVehicles() throws IOException {
         ArrayList<Vehicle> list = new ArrayList<>();
-        File file = new File(VEHICLE_FILE);
+        File file = new File(vehicleFile);
 
         // Nếu file không tồn tại, trả về danh sách rỗng
         if (!file.exists())
             return list;
 
-        // Sử dụng try-with-resources để tự động đóng BufferedReader sau khi dùng xong
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
+        // Tách trường trực tiếp trên byte (xem CsvTokenizer), chỉ tạo các chuỗi được giữ lại
+        VehicleType[] types = VehicleType.values();
+        try (InputStream in = new FileInputStream(file)) {
+            CsvTokenizer line = new CsvTokenizer(in, CHARSET);
             // Đọc từng dòng trong file cho đến khi hết
-            while ((line = br.readLine()) != null) {
-                // Bỏ qua các dòng trống
-                if (line.trim().isEmpty())
-                    continue;
-
-                // Tách dòng thành các phần bằng dấu phẩy (định dạng CSV)
-                String[] parts = line.split(",");
-
-                // Kiểm tra xem dòng có đủ dữ liệu không (ít nhất 4 trường cho Vehicle)
-                if (parts.length >= 4) {
+            while (line.nextLine()) {
+                // Bỏ qua dòng trống / dòng không đủ dữ liệu (ít nhất 4 trường cho Vehicle)
+                if (line.fieldCount() >= 4) {
                     // Cắt bỏ khoảng trắng thừa ở đầu/cuối mỗi phần dữ liệu
-                    String plate = parts[0].trim(); // Biển số
-                    VehicleType type = VehicleType.valueOf(parts[1].trim()); // Loại xe (enum)
-                    String owner = parts[2].trim(); // Chủ xe
-                    String phone = parts[3].trim(); // Số điện thoại
+                    String plate = line.trimmedField(0); // Biển số
+                    VehicleType type = line.enumField(1, types); // Loại xe (enum)
+                    String owner = line.trimmedField(2); // Chủ xe
+                    String phone = line.trimmedField(3); // Số điện thoại
 
                     // Tạo đối tượng Vehicle mới và thêm vào danh sách
                     list.add(new Vehicle(plate, type, owner, phone));
@@ -84,29 +554,25 @@ public class DataManager {
     // Đọc danh sách chỗ đỗ từ file CSV
     public ArrayList<ParkingSpot> loadSpots() throws IOException {
         ArrayList<ParkingSpot> list = new ArrayList<>();
-        File file = new File(SPOT_FILE);
+        File file = new File(spotFile);
 
         // Nếu file không tồn tại, trả về danh sách rỗng
         if (!file.exists())
             return list;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty())
-                    continue;
-
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    // Phân tích dữ liệu từ chuỗi sang các kiểu dữ liệu tương ứng
-                    int id = Integer.parseInt(parts[0].trim()); // ID chỗ đỗ
-                    VehicleType type = VehicleType.valueOf(parts[1].trim()); // Loại xe được phép đỗ
-                    String rawPlate = parts[2].trim(); // Biển số xe đang đỗ (nếu có)
+        VehicleType[] types = VehicleType.values();
+        try (InputStream in = new FileInputStream(file)) {
+            CsvTokenizer line = new CsvTokenizer(in, CHARSET);
+            while (line.nextLine()) {
+                if (line.fieldCount() >= 4) {
+                    // Phân tích dữ liệu ngay trên byte sang các kiểu dữ liệu tương ứng
+                    int id = line.intField(0); // ID chỗ đỗ
+                    VehicleType type = line.enumField(1, types); // Loại xe được phép đỗ
 
-                    // Xử lý trường hợp biển số là "null" (chuỗi) thành null (giá trị)
-                    String plate = rawPlate.equals("null") ? null : rawPlate;
+                    // Biển số xe đang đỗ (nếu có), chuỗi "null" thành null (giá trị)
+                    String plate = line.fieldEquals(2, "null") ? null : line.trimmedField(2);
 
-                    boolean occupied = Boolean.parseBoolean(parts[3].trim()); // Trạng thái có xe hay không
+                    boolean occupied = line.booleanField(3); // Trạng thái có xe hay không
 
                     // Tạo đối tượng ParkingSpot và thêm vào danh sách
                     list.add(new ParkingSpot(id, type, plate, occupied));
@@ -116,36 +582,157 @@ public class DataManager {
         return list;
     }
 
-    // Đọc danh sách vé từ file CSV
+    // Đọc toàn bộ danh sách vé: các phân đoạn tháng rồi file vé (công cụ chuyển
+    // đổi, benchmark). ParkingLot chỉ nạp vé chưa ra (loadOpenTickets).
     public ArrayList<Ticket> loadTickets() throws IOException {
+        // Đọc thẳng trên vùng nhớ ánh xạ file, không tách thành từng dòng String
+        ArrayList<Ticket> inFile = ticketFormat == TicketFormat.BINARY ? binaryTickets.load() : csvReader().read();
+        ArrayList<TicketSegment> segments = TicketSegment.list(segmentDir, CHARSET);
+        if (segments.isEmpty())
+            return inFile;
+        // Vé trong file vé có cùng mã với vé đầu khoảng của từng phân đoạn (xem isLeftover)
+        HashMap<Integer, Ticket> firstById = new HashMap<>();
+        for (TicketSegment segment : segments)
+            firstById.put(segment.getMinId(), null);
+        for (Ticket ticket : inFile)
+            firstById.replace(ticket.getTicketID(), null, ticket);
         ArrayList<Ticket> list = new ArrayList<>();
-        File file = new File(TICKET_FILE);
+        for (TicketSegment segment : segments) {
+            if (!isLeftover(segment, firstById.get(segment.getMinId())))
+                segment.forEach(list::add);
+        }
+        list.addAll(inFile);
+        return list;
+    }
 
-        // Nếu file không tồn tại, trả về danh sách rỗng
+    /*
+     * Chỉ nạp các vé chưa ra (theo thứ tự trong file); các vé còn lại không được
+     * đọc mà chỉ được ghi nhận vị trí theo trang (getTicketHistory), nên thời
+     * gian nạp và bộ nhớ chỉ phụ thuộc số xe trong bãi. Dùng chỉ mục đã lưu nếu
+     * còn khớp với file vé; nếu không, quét file một lần và lưu chỉ mục mới.
+     */
+    ArrayList<Ticket> loadOpenTickets() throws IOException {
+        ticketIndex = new TicketIndex();
+        ticketFileLength = -1;
+        ticketHistory = TicketHistory.EMPTY;
+        File file = new File(getTicketFile());
+        TicketIndex index = new TicketIndex();
+        ArrayList<Ticket> open = new ArrayList<>();
+        long length = 0;
+        if (file.exists()) {
+            length = file.length();
+            index = TicketIndex.read(new File(getTicketIndexFile()), length, file.lastModified());
+            open = index == null ? null : readOpenRows(index);
+            if (open == null) {
+                index = ticketFormat == TicketFormat.BINARY ? binaryTickets.index() : csvReader().index();
+                open = readOpenRows(index);
+                if (open == null)
+                    throw new IOException("File vé " + getTicketFile() + " bị thay đổi trong lúc nạp");
+                ticketIndex = index;
+                writeTicketIndex();
+            }
+            // Chỉ ghi tiếp được vào file kết thúc trọn dòng/bản ghi (không có phần ghi dở)
+            if (endsCleanly(file, length))
+                ticketFileLength = length;
+        }
+        ticketIndex = index;
+        TicketHistory inFile = index.history(pageReader(), ticketFileLock, new TicketSegment[0], length,
+                index.openRowStarts());
+        // Chỉ đọc phần đầu của các phân đoạn; phân đoạn sót lại của lần cuộn bị
+        // ngắt (file vé vẫn còn các vé đó) bị xóa, lần lưu sau sẽ cuộn lại
+        ArrayList<TicketSegment> segments = TicketSegment.list(segmentDir, CHARSET);
+        try {
+            for (Iterator<TicketSegment> it = segments.iterator(); it.hasNext();) {
+                TicketSegment segment = it.next();
+                if (isLeftover(segment, inFile.findById(segment.getMinId()))) {
+                    segment.getFile().delete();
+                    it.remove();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        ticketHistory = inFile.withSegments(segments.toArray(new TicketSegment[0]));
+        return open;
+    }
+
+    // inFile là vé cùng mã với vé có mã nhỏ nhất của segment trong file vé (null
+    // nếu không có). Vé đó đã đóng trong đúng tháng của segment nghĩa là file vé
+    // chưa được thay sau khi ghi segment: segment là bản sao thừa.
+    private static boolean isLeftover(TicketSegment segment, Ticket inFile) {
+        return inFile != null && inFile.getExitTime() != null
+                && YearMonth.from(inFile.getExitTime()).equals(segment.getMonth());
+    }
+
+    // Lịch sử vé chưa nạp của lần loadOpenTickets gần nhất (theo file vé hiện tại)
+    TicketHistory getTicketHistory() {
+        return ticketHistory.latest();
+    }
+
+    // Đọc các vé chưa ra theo chỉ mục, null nếu chỉ mục không khớp với file
+    private ArrayList<Ticket> readOpenRows(TicketIndex index) throws IOException {
+        int[] ids = index.openRowIds();
+        long[] starts = index.openRowStarts();
+        ArrayList<Ticket> rows = ticketFormat == TicketFormat.BINARY ? binaryTickets.readRows(starts)
+                : csvReader().readRows(starts);
+        for (int i = 0; i < ids.length; i++) {
+            Ticket ticket = rows.get(i);
+            if (ticket == null || ticket.getTicketID() != ids[i] || ticket.getExitTime() != null)
+                return null;
+        }
+        return rows;
+    }
+
+    private boolean endsCleanly(File file, long length) throws IOException {
+        if (ticketFormat == TicketFormat.BINARY)
+            return length >= BinaryTicketFile.HEADER_SIZE
+                    && (length - BinaryTicketFile.HEADER_SIZE) % BinaryTicketFile.RECORD_SIZE == 0;
+        if (length == 0)
+            return true;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(length - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    // Đọc một trang lịch sử từ file vé hiện tại
+    private TicketHistory.PageReader pageReader() {
+        if (ticketFormat == TicketFormat.BINARY)
+            return binaryTickets::read;
+        return csvReader()::read;
+    }
+
+    private MappedTicketReader csvReader() {
+        return new MappedTicketReader(new File(ticketFile), CHARSET);
+    }
+
+    // Đọc mã vé lớn nhất đã cấp, trả về 0 nếu chưa từng lưu
+    public int loadLastTicketID() throws IOException {
+        String value = loadMeta().get(LAST_TICKET_ID);
+        if (value == null)
+            return 0;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0; // Giá trị hỏng: để ParkingLot tự tính lại từ danh sách vé
+        }
+    }
+
+    // Đọc file thông số hệ thống thành bảng key -> value (giữ thứ tự dòng)
+    private LinkedHashMap<String, String> loadMeta() throws IOException {
+        LinkedHashMap<String, String> meta = new LinkedHashMap<>();
+        File file = new File(metaFile);
         if (!file.exists())
-            return list;
+            return meta;
 
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty())
-                    continue;
-
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    // Xử lý thời gian vào, nếu là "null" thì gán giá trị null
-                    LocalDateTime entry = parts[3].equals("null") ? null : LocalDateTime.parse(parts[3]);
-                    // Xử lý thời gian ra, nếu là "null" thì gán giá trị null
-                    LocalDateTime exit = parts[4].equals("null") ? null : LocalDateTime.parse(parts[4]);
-
-                    // Tạo đối tượng Ticket từ dữ liệu đọc được
-                    // parts[0]: ID vé, parts[1]: ID chỗ đỗ, parts[2]: Biển số, parts[3]: Thời gian
-                    // vào
-                    list.add(new Ticket(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts[2],
-                            entry, exit));
-                }
+                int comma = line.indexOf(',');
+                if (comma > 0)
+                    meta.put(line.substring(0, comma).trim(), line.substring(comma + 1).trim());
             }
         }
-        return list;
+        return meta;
     }
 }
@@ -0,0 +1,48 @@
+package logic;
+
+import java.time.LocalDateTime;
+
+// Một lượt đọc biển số tại cổng: xe vào hoặc xe ra.
+// time là thời điểm đọc tại cổng (khi phát lại hàng đợi sau mất kết nối),
+// null nghĩa là dùng thời điểm xử lý.
+public class GateEvent {
+    public enum Kind {
+        ENTRY,
+        EXIT
+    }
+
+    private final Kind kind;
+    private final String licensePlate;
+    private final LocalDateTime time;
+
+    public GateEvent(Kind kind, String licensePlate, LocalDateTime time) {
+        this.kind = kind;
+        this.licensePlate = licensePlate;
+        this.time = time;
+    }
+
+    public static GateEvent entry(String licensePlate) {
+        return new GateEvent(Kind.ENTRY, licensePlate, null);
+    }
+
+    public static GateEvent exit(String licensePlate) {
+        return new GateEvent(Kind.EXIT, licensePlate, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "," + licensePlate + "," + time;
+    }
+}
@@ -0,0 +1,45 @@
+package logic;
+
+// Kết quả xử lý một GateEvent
+public class GateResult {
+    public enum Status {
+        PARKED, // xe vào thành công, ticket là vé mới
+        RETRIEVED, // xe ra thành công, ticket là vé vừa đóng
+        INVALID_PLATE, // biển số rỗng
+        NOT_REGISTERED, // xe chưa đăng ký
+        ALREADY_PARKED, // xe đang trong bãi / còn vé chưa đóng
+        NO_SPOT, // hết chỗ phù hợp
+        NOT_PARKED // xe ra nhưng không có vé đang hoạt động
+    }
+
+    private final GateEvent event;
+    private final Status status;
+    private final Ticket ticket;
+
+    public GateResult(GateEvent event, Status status, Ticket ticket) {
+        this.event = event;
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public GateEvent getEvent() {
+        return event;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.PARKED || status == Status.RETRIEVED;
+    }
+
+    @Override
+    public String toString() {
+        return event + " -> " + status + (ticket == null ? "" : " #" + ticket.getTicketID());
+    }
+}
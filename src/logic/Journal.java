@@ -0,0 +1,329 @@
+package logic;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Nhật ký ghi trước (write-ahead journal) của ParkingLot: mỗi thay đổi trạng
+ * thái (thêm/xóa xe, thêm chỗ, xe vào, xe ra, reset) được ghi thêm một dòng
+ * ngắn vào cuối file ngay khi xảy ra. Khi khởi động, ParkingLot đọc ảnh chụp
+ * CSV rồi áp dụng lại nhật ký. Lúc chụp ảnh để lưu, nhật ký hiện tại được
+ * chuyển sang file .old (rotate) và các thay đổi sau đó ghi vào file mới; khi
+ * ảnh chụp đã nằm an toàn trên đĩa thì file .old mới bị xóa. Nhờ vậy mất
+ * điện/tắt đột ngột không làm mất các lượt xe từ lần lưu trước, mà mỗi thao
+ * tác chỉ tốn một lần ghi nối tiếp nhỏ thay vì ghi lại cả 3 file.
+ *
+ * Mỗi dòng là một bản ghi, các trường cách nhau bởi dấu phẩy, trường chữ tự do
+ * đứng sau các trường cố định (trường cuối được giữ nguyên cả dấu phẩy):
+ * V+,loại xe,SĐT,biển số,họ tên | V-,biển số | S+,loại xe,mã đầu,số lượng |
+ * P,mã vé,mã chỗ,giờ vào,biển số | R,mã vé,giờ ra,biển số | X,VEHICLES|SPOTS|TICKETS
+ *
+ * Ghi theo nhóm (group commit): thao tác chỉ xếp bản ghi vào hàng đợi (không
+ * khóa, không chạm file), một luồng ghi nền lấy hết các bản ghi đang chờ, ghi
+ * và đẩy xuống hệ điều hành một lần cho cả nhóm. Thứ tự trong file là thứ tự
+ * xếp hàng. Mặc định thao tác không chờ ghi xong (bản ghi nằm trong hàng đợi
+ * vài mili giây); bật setSync để ép ghi xuống đĩa và cho thao tác chờ tới khi
+ * bản ghi của nó nằm trên đĩa (awaitWritten), không mất cả khi mất điện.
+ *
+ * Lỗi ghi không làm hỏng thao tác đã thực hiện trong bộ nhớ: các bản ghi lỗi bị
+ * bỏ, lỗi được giữ lại (getFailure) cho tới khi một ảnh chụp lưu sau lỗi đó
+ * thành công; dữ liệu vẫn được lưu ở lần saveAllData kế tiếp.
+ */
+class Journal {
+    static final String VEHICLE_ADDED = "V+";
+    static final String VEHICLE_REMOVED = "V-";
+    static final String SPOTS_ADDED = "S+";
+    static final String PARKED = "P";
+    static final String RETRIEVED = "R";
+    static final String RESET = "X";
+
+    private final File file;
+    // Phần nhật ký trước ảnh chụp đang lưu (hoặc lần lưu gần nhất bị lỗi)
+    private final File rotated;
+    // Bản ghi chờ ghi. Chỉ được lấy ra khi đang giữ khóa của Journal
+    // (writePending), để rotate/close không bỏ sót bản ghi nào.
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    // Luồng ghi nền, tạo khi có bản ghi đầu tiên và dừng khi close
+    private final AtomicReference<Thread> flusher = new AtomicReference<>();
+    // Bản ghi gần nhất của từng luồng (chỉ khi sync), để awaitWritten chờ đúng nó
+    private final ThreadLocal<Entry> lastEntry = new ThreadLocal<>();
+    // Mở khi ghi bản ghi đầu tiên: ParkingLot chỉ đọc thì không giữ file
+    private FileOutputStream out;
+    private BufferedWriter writer;
+    private volatile boolean sync;
+    // Lỗi ghi gần nhất chưa được ảnh chụp nào bao phủ, null nếu không có
+    private volatile IOException failure;
+    // Số lần lỗi: tổng cộng / lúc rotate gần nhất
+    private long failures;
+    private long failuresAtRotate;
+
+    // Một bản ghi; done khi đã ghi xong hoặc bị bỏ vì lỗi, awaited khi có luồng
+    // đang chờ nó (xem awaitWritten)
+    private static final class Entry {
+        final String line;
+        volatile boolean done;
+        volatile boolean awaited;
+
+        Entry(String line) {
+            this.line = line;
+        }
+    }
+
+    Journal(String filename) {
+        this.file = new File(filename);
+        this.rotated = new File(filename + ".old");
+    }
+
+    void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    // Lỗi ghi nhật ký chưa được khắc phục (các bản ghi từ đó chỉ còn trong bộ
+    // nhớ cho tới lần lưu kế tiếp), null nếu nhật ký đang ghi bình thường
+    IOException getFailure() {
+        return failure;
+    }
+
+    // Đọc toàn bộ bản ghi đã có (phần .old trước), mỗi bản ghi là mảng các trường
+    ArrayList<String[]> readRecords() throws IOException {
+        ArrayList<String[]> records = new ArrayList<>();
+        readRecords(rotated, records);
+        readRecords(file, records);
+        return records;
+    }
+
+    private static void readRecords(File source, ArrayList<String[]> records) throws IOException {
+        if (!source.exists())
+            return;
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                records.add(line.split(",", fieldCount(line.substring(0, Math.max(0, line.indexOf(','))))));
+            }
+        }
+    }
+
+    void vehicleAdded(Vehicle v) {
+        append(VEHICLE_ADDED + "," + v.getType() + "," + v.getOwnerPhone() + "," + v.getLicensePlate() + ","
+                + v.getOwnerName());
+    }
+
+    void vehicleRemoved(String licensePlate) {
+        append(VEHICLE_REMOVED + "," + licensePlate);
+    }
+
+    void spotsAdded(VehicleType type, int firstSpotID, int count) {
+        append(SPOTS_ADDED + "," + type + "," + firstSpotID + "," + count);
+    }
+
+    void parked(Ticket ticket) {
+        append(PARKED + "," + ticket.getTicketID() + "," + ticket.getSpotID() + ","
+                + TimestampCodec.format(ticket.getEntryTime()) + "," + ticket.getLicensePlate());
+    }
+
+    void retrieved(Ticket ticket) {
+        append(RETRIEVED + "," + ticket.getTicketID() + "," + TimestampCodec.format(ticket.getExitTime()) + ","
+                + ticket.getLicensePlate());
+    }
+
+    void reset(String what) {
+        append(RESET + "," + what);
+    }
+
+    // Số trường của từng loại bản ghi
+    private static int fieldCount(String type) {
+        switch (type) {
+            case VEHICLE_ADDED:
+            case PARKED:
+                return 5;
+            case SPOTS_ADDED:
+            case RETRIEVED:
+                return 4;
+            default:
+                return 2;
+        }
+    }
+
+    static LocalDateTime parseTime(String value) {
+        return TimestampCodec.parse(value);
+    }
+
+    // Chờ tới khi bản ghi gần nhất của luồng gọi đã nằm trên đĩa (chỉ khi bật
+    // sync). Gọi sau khi đã nhả các khóa của ParkingLot.
+    void awaitWritten() {
+        if (!sync)
+            return;
+        Entry entry = lastEntry.get();
+        if (entry == null)
+            return;
+        lastEntry.remove();
+        synchronized (entry) {
+            entry.awaited = true;
+            while (!entry.done) {
+                try {
+                    entry.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Tách phần nhật ký đến thời điểm chụp ảnh sang file .old (gọi khi đang chụp
+    // ảnh, không có thao tác nào xen vào). Nếu lần lưu trước lỗi thì file .old
+    // vẫn còn: nối tiếp vào đó để không mất bản ghi nào.
+    synchronized void rotate() throws IOException {
+        writePending();
+        closeFile();
+        failuresAtRotate = failures;
+        if (!file.exists() || file.length() == 0)
+            return;
+        if (rotated.exists()) {
+            Files.write(rotated.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+            Files.delete(file.toPath());
+        } else {
+            Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // Ảnh chụp đã lưu xong: bỏ phần nhật ký trước ảnh chụp
+    // (các lỗi ghi trước lúc rotate cũng không còn ảnh hưởng)
+    synchronized void dropRotated() throws IOException {
+        Files.deleteIfExists(rotated.toPath());
+        if (failures == failuresAtRotate)
+            failure = null;
+    }
+
+    // Ghi nốt các bản ghi đang chờ, dừng luồng ghi và đóng file
+    synchronized void close() throws IOException {
+        Thread thread = flusher.getAndSet(null);
+        if (thread != null)
+            LockSupport.unpark(thread);
+        writePending();
+        closeFile();
+    }
+
+    private void closeFile() throws IOException {
+        if (writer == null)
+            return;
+        try {
+            writer.close();
+        } finally {
+            writer = null;
+            out = null;
+        }
+    }
+
+    // Xếp bản ghi vào hàng đợi và đánh thức luồng ghi; không chặn, không chạm
+    // file nên gọi được cả khi đang giữ khóa (vd: trong compute của map)
+    private void append(String record) {
+        Entry entry = new Entry(record);
+        pending.add(entry);
+        if (sync)
+            lastEntry.set(entry);
+        Thread thread = flusher.get();
+        if (thread == null)
+            thread = startFlusher();
+        LockSupport.unpark(thread);
+    }
+
+    private Thread startFlusher() {
+        Thread thread = new Thread(this::flushLoop, "journal-writer");
+        thread.setDaemon(true);
+        if (flusher.compareAndSet(null, thread)) {
+            thread.start();
+            return thread;
+        }
+        Thread current = flusher.get();
+        return current != null ? current : startFlusher();
+    }
+
+    private void flushLoop() {
+        Thread self = Thread.currentThread();
+        while (flusher.get() == self) {
+            if (pending.isEmpty())
+                LockSupport.park(this);
+            else
+                writePending();
+        }
+    }
+
+    // Ghi mọi bản ghi đang chờ và đẩy xuống một lần. Lỗi thì bỏ cả nhóm, đóng
+    // file để lần sau mở lại, và ghi nhận lỗi.
+    private synchronized void writePending() {
+        if (pending.isEmpty())
+            return;
+        ArrayList<Entry> batch = new ArrayList<>();
+        Entry entry;
+        try {
+            if (writer == null)
+                open();
+            while ((entry = pending.poll()) != null) {
+                batch.add(entry);
+                writer.write(entry.line);
+                writer.newLine();
+            }
+            flush();
+        } catch (IOException e) {
+            while ((entry = pending.poll()) != null)
+                batch.add(entry);
+            failure = e;
+            failures++;
+            try {
+                closeFile();
+            } catch (IOException ignored) {
+                // file đã hỏng, lần sau mở lại
+            }
+        }
+        for (Entry written : batch) {
+            written.done = true;
+            if (written.awaited) {
+                synchronized (written) {
+                    written.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        // Dòng cuối bị ghi dở (tắt máy giữa chừng) thì xuống dòng trước, để bản
+        // ghi mới không dính vào dòng hỏng
+        boolean newLine = false;
+        if (file.length() > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(raf.length() - 1);
+                newLine = raf.read() != '\n';
+            }
+        }
+        out = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (newLine)
+            writer.newLine();
+    }
+
+    private void flush() throws IOException {
+        writer.flush();
+        if (sync)
+            out.getFD().sync();
+    }
+}
@@ -0,0 +1,299 @@
+package logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Đọc tickets.csv bằng ánh xạ bộ nhớ (FileChannel.map): tách trường trực tiếp
+ * trên các byte của file, không tạo chuỗi cho từng dòng, không split. Mã vé/mã
+ * chỗ và giờ (TimestampCodec) được đọc thẳng trên byte; chỉ biển số thành chuỗi. Hệ điều
+ * hành tự nạp file vào page cache, lần mở sau gần như không phải đọc đĩa.
+ *
+ * File lớn được ánh xạ theo từng cửa sổ MAP_WINDOW byte; dòng nằm vắt qua ranh
+ * giới cửa sổ được đọc lại ở cửa sổ sau. Ký tự phân cách (',', '\n') được tìm
+ * theo byte nên bảng mã mặc định phải tương thích ASCII (UTF-8, windows-125x...).
+ *
+ * File lớn được chia thành nhiều khối theo ranh giới dòng và đọc song song
+ * trên ForkJoinPool chung, cả khi đọc cả file lẫn khi quét để dựng chỉ mục lúc
+ * khởi động; kết quả giữ đúng thứ tự dòng trong file.
+ *
+ * Ngoài đọc cả file còn đọc được một đoạn (một trang lịch sử), từng dòng tại
+ * vị trí cho trước (vé chưa ra) và quét file để dựng TicketIndex.
+ *
+ * Quy tắc giống bản đọc theo dòng trước đây: dòng thiếu trường, số hoặc giờ
+ * hỏng (vd: ghi dở khi tắt máy) bị bỏ qua; biển số giữ nguyên, giờ được bỏ
+ * khoảng trắng đệm.
+ */
+class MappedTicketReader {
+    // Cửa sổ ánh xạ: đủ lớn để ít lần map, đủ nhỏ để không chiếm hết không gian địa chỉ
+    private static final long MAP_WINDOW = 1L << 26;
+    // File lớn hơn CHUNK_SIZE được chia khối đọc song song (xem Chunk)
+    private static final long CHUNK_SIZE = 1L << 23;
+    private static final int FIELD_COUNT = 5;
+
+    private final File file;
+    private final Charset charset;
+
+    MappedTicketReader(File file, Charset charset) {
+        this.file = file;
+        this.charset = charset;
+    }
+
+    ArrayList<Ticket> read() throws IOException {
+        if (!file.exists())
+            return new ArrayList<>();
+        return readChunks(this::read, (first, second) -> {
+            first.addAll(second);
+            return first;
+        });
+    }
+
+    // Đọc một đoạn [from, to) của file (from là đầu một dòng) thành kết quả T
+    private interface ChunkReader<T> {
+        T read(FileChannel channel, long from, long to) throws IOException;
+    }
+
+    // Đọc cả file bằng reader, chia khối song song nếu file lớn; merge nối kết
+    // quả của khối sau vào khối trước
+    private <T> T readChunks(ChunkReader<T> reader, BinaryOperator<T> merge) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= CHUNK_SIZE || Runtime.getRuntime().availableProcessors() == 1)
+                return reader.read(channel, 0, size);
+            try {
+                return ForkJoinPool.commonPool().invoke(new Chunk<>(channel, 0, size, reader, merge));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Đọc các dòng nằm trong đoạn [from, to) của file; from là đầu một dòng
+    private ArrayList<Ticket> read(FileChannel channel, long from, long to) throws IOException {
+        ArrayList<Ticket> list = new ArrayList<>();
+        scan(channel, from, to, (line, offset) -> addTicket(line, list));
+        return list;
+    }
+
+    /*
+     * Đọc các vé trong đoạn [from, to) của file (from là đầu một dòng, vd: một
+     * trang của TicketIndex), bỏ các dòng bắt đầu tại vị trí thuộc skip (mảng đã
+     * sắp xếp). Dòng bị bỏ không được tách trường nên có thể đang bị ghi đè giờ
+     * ra song song (DataManager.appendTickets).
+     */
+    ArrayList<Ticket> read(long from, long to, long[] skip) throws IOException {
+        ArrayList<Ticket> list = new ArrayList<>();
+        if (from >= to)
+            return list;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            scan(channel, from, Math.min(to, channel.size()), (line, offset) -> addTicket(line, list), skip);
+        }
+        return list;
+    }
+
+    // Xử lý một dòng vừa tách, offset là vị trí đầu dòng trong file
+    private interface LineHandler {
+        void line(CsvTokenizer line, long offset);
+    }
+
+    private void scan(FileChannel channel, long from, long to, LineHandler handler) throws IOException {
+        scan(channel, from, to, handler, null);
+    }
+
+    // Tách lần lượt các dòng trong đoạn [from, to) và đưa cho handler, bỏ qua
+    // (không tách) các dòng bắt đầu tại vị trí thuộc skip nếu có
+    private void scan(FileChannel channel, long from, long to, LineHandler handler, long[] skip)
+            throws IOException {
+        CsvTokenizer line = new CsvTokenizer(charset);
+        long position = from;
+        while (position < to) {
+            long length = Math.min(MAP_WINDOW, to - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    handle(line, buffer, lineStart, i, position, handler, skip);
+                    lineStart = i + 1;
+                }
+            }
+            if (position + length == to) {
+                // Dòng cuối không có ký tự xuống dòng
+                if (lineStart < limit)
+                    handle(line, buffer, lineStart, limit, position, handler, skip);
+                break;
+            }
+            // Dòng dài hơn cả cửa sổ không phải dòng vé hợp lệ: bỏ qua phần này
+            position += lineStart > 0 ? lineStart : length;
+        }
+    }
+
+    private static void handle(CsvTokenizer line, MappedByteBuffer buffer, int start, int end, long position,
+            LineHandler handler, long[] skip) {
+        long offset = position + start;
+        if (skip != null && Arrays.binarySearch(skip, offset) >= 0)
+            return;
+        line.split(buffer, start, end);
+        handler.line(line, offset);
+    }
+
+    /*
+     * Đọc các dòng bắt đầu tại từng vị trí trong offsets (vé chưa ra theo
+     * TicketIndex). Phần tử tương ứng là null nếu vị trí không phải đầu một
+     * dòng vé hợp lệ (chỉ mục không còn khớp với file).
+     */
+    ArrayList<Ticket> readRows(long[] offsets) throws IOException {
+        ArrayList<Ticket> list = new ArrayList<>(offsets.length);
+        CsvTokenizer line = new CsvTokenizer(charset);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset : offsets) {
+                if (offset < 0 || offset >= size) {
+                    list.add(null);
+                    continue;
+                }
+                // Đọc từ byte ngay trước dòng để chắc vị trí là đầu dòng
+                long from = Math.max(0, offset - 1);
+                int start = (int) (offset - from);
+                int end;
+                while (true) {
+                    buffer.clear();
+                    int read = 0;
+                    while (buffer.hasRemaining()) {
+                        int n = channel.read(buffer, from + buffer.position());
+                        if (n < 0)
+                            break;
+                        read += n;
+                    }
+                    end = start;
+                    while (end < read && buffer.get(end) != '\n')
+                        end++;
+                    if (end < read || from + read == size)
+                        break;
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2); // dòng dài hơn buffer
+                }
+                if (start == 1 && buffer.get(0) != '\n') {
+                    list.add(null);
+                    continue;
+                }
+                line.split(buffer, start, end);
+                list.add(readTicket(line));
+            }
+        }
+        return list;
+    }
+
+    // Quét toàn bộ file để dựng chỉ mục vị trí dòng (khi chưa có chỉ mục đã
+    // lưu hoặc chỉ mục không khớp), song song theo khối như read(). Vị trí cột
+    // giờ ra chưa biết (-1).
+    TicketIndex index() throws IOException {
+        if (!file.exists())
+            return new TicketIndex();
+        return readChunks(this::index, TicketIndex::append);
+    }
+
+    // Chỉ mục của các dòng trong đoạn [from, to) của file
+    private TicketIndex index(FileChannel channel, long from, long to) throws IOException {
+        TicketIndex index = new TicketIndex();
+        scan(channel, from, to, (line, offset) -> {
+            Ticket ticket = readTicket(line);
+            if (ticket != null)
+                index.addRow(offset, ticket.getTicketID(), ticket.getExitTime(), -1);
+        });
+        return index;
+    }
+
+    // Vị trí đầu dòng đầu tiên tính từ position (to nếu không còn dòng nào)
+    private static long nextLine(FileChannel channel, long position, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (position < to) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n')
+                    return Math.min(position + i + 1, to);
+            }
+            position += read;
+        }
+        return to;
+    }
+
+    /**
+     * Đọc song song (fork/join): chia đôi đoạn file tại ranh giới dòng cho tới
+     * khi mỗi đoạn không quá CHUNK_SIZE, ghép kết quả theo đúng thứ tự file.
+     */
+    @SuppressWarnings("serial") // chỉ chạy trong ForkJoinPool, không bao giờ được tuần tự hóa
+    private static class Chunk<T> extends RecursiveTask<T> {
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final ChunkReader<T> reader;
+        private final BinaryOperator<T> merge;
+
+        Chunk(FileChannel channel, long from, long to, ChunkReader<T> reader, BinaryOperator<T> merge) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.reader = reader;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            try {
+                if (to - from > CHUNK_SIZE) {
+                    long middle = nextLine(channel, from + (to - from) / 2, to);
+                    if (middle > from && middle < to) {
+                        Chunk<T> right = new Chunk<>(channel, middle, to, reader, merge);
+                        right.fork();
+                        T left = new Chunk<>(channel, from, middle, reader, merge).compute();
+                        return merge.apply(left, right.join());
+                    }
+                }
+                return reader.read(channel, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Thêm vé của dòng vừa tách vào list nếu dòng hợp lệ
+    private static void addTicket(CsvTokenizer line, ArrayList<Ticket> list) {
+        Ticket ticket = readTicket(line);
+        if (ticket != null)
+            list.add(ticket);
+    }
+
+    // Vé của dòng vừa tách, null nếu dòng không hợp lệ (TicketSegment dùng chung)
+    static Ticket readTicket(CsvTokenizer line) {
+        if (line.fieldCount() < FIELD_COUNT)
+            return null; // dòng trống hoặc thiếu trường
+        try {
+            return new Ticket(line.intField(0), line.intField(1), line.field(2), time(line, 3), time(line, 4));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null; // Dòng hỏng: nhật ký thay đổi sẽ khôi phục lại vé này
+        }
+    }
+
+    // Giờ vào/ra, "null" là chưa có. File ghi trước khi đổi sang đệm dấu phẩy
+    // có giờ ra đệm khoảng trắng nên vẫn bỏ khoảng trắng hai đầu.
+    private static LocalDateTime time(CsvTokenizer line, int field) {
+        return TimestampCodec.parse(line.trimmedText(field));
+    }
+}
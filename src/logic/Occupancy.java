@@ -0,0 +1,54 @@
+package logic;
+
+// Ảnh chụp số chỗ đỗ (tổng / đang có xe / còn trống) theo từng loại xe
+public class Occupancy {
+    private final int[] total;
+    private final int[] free;
+
+    Occupancy(int[] total, int[] free) {
+        this.total = total;
+        this.free = free;
+    }
+
+    public int getTotal(VehicleType type) {
+        return total[type.ordinal()];
+    }
+
+    public int getFree(VehicleType type) {
+        return free[type.ordinal()];
+    }
+
+    public int getOccupied(VehicleType type) {
+        return total[type.ordinal()] - free[type.ordinal()];
+    }
+
+    // Cộng dồn mọi loại xe
+    public int getTotal() {
+        int sum = 0;
+        for (int n : total)
+            sum += n;
+        return sum;
+    }
+
+    public int getFree() {
+        int sum = 0;
+        for (int n : free)
+            sum += n;
+        return sum;
+    }
+
+    public int getOccupied() {
+        return getTotal() - getFree();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (VehicleType type : VehicleType.values()) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(type).append(": ").append(getFree(type)).append('/').append(getTotal(type));
+        }
+        return sb.toString();
+    }
+}
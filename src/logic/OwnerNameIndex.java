@@ -0,0 +1,306 @@
+package logic;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Chỉ mục tên chủ xe phục vụ tìm kiếm nhanh.
+ * - Khớp chính xác họ tên (đã chuẩn hóa, không phân biệt hoa thường).
+ * - Chỉ mục ngược theo từng từ (token) đã bỏ dấu, cho phép tìm theo tiền tố
+ * ("Nguyen Va" khớp "Nguyễn Văn An") và sai khác nhỏ (gõ nhầm 1-2 ký tự).
+ */
+class OwnerNameIndex {
+    // Một xe trong chỉ mục kèm mã các token trong họ tên của xe đó
+    private static class Entry {
+        final Vehicle vehicle;
+        final int[] tokenIds;
+
+        Entry(Vehicle vehicle, int[] tokenIds) {
+            this.vehicle = vehicle;
+            this.tokenIds = tokenIds;
+        }
+    }
+
+    // Họ tên (chữ thường) -> các xe có đúng họ tên đó, theo thứ tự thêm vào
+    private final HashMap<String, ArrayList<Vehicle>> byFullName = new HashMap<>();
+    // Token đã bỏ dấu -> các xe có token đó trong họ tên. TreeMap để tìm theo tiền tố.
+    private final TreeMap<String, LinkedHashSet<Entry>> byToken = new TreeMap<>();
+    private final IdentityHashMap<Vehicle, Entry> entries = new IdentityHashMap<>();
+    // Mỗi token phân biệt được gán một mã số nguyên để so khớp bằng số thay vì
+    // chuỗi. Token không còn xe nào bị bỏ và mã của nó được dùng lại.
+    private final HashMap<String, Integer> tokenIds = new HashMap<>();
+    private final ArrayList<Integer> freeTokenIds = new ArrayList<>();
+    private int nextTokenId;
+
+    void add(Vehicle v) {
+        String name = v.getOwnerName();
+        if (name == null || entries.containsKey(v))
+            return;
+        byFullName.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(v);
+
+        String[] tokens = tokenize(name);
+        int[] ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            ids[i] = tokenIds.computeIfAbsent(tokens[i], k -> newTokenId());
+        }
+        Entry entry = new Entry(v, ids);
+        entries.put(v, entry);
+        for (String token : tokens) {
+            byToken.computeIfAbsent(token, k -> new LinkedHashSet<>()).add(entry);
+        }
+    }
+
+    void remove(Vehicle v) {
+        Entry entry = entries.remove(v);
+        if (entry == null)
+            return;
+        String key = v.getOwnerName().toLowerCase(Locale.ROOT);
+        ArrayList<Vehicle> same = byFullName.get(key);
+        if (same != null) {
+            same.remove(v);
+            if (same.isEmpty())
+                byFullName.remove(key);
+        }
+        for (String token : tokenize(v.getOwnerName())) {
+            LinkedHashSet<Entry> set = byToken.get(token);
+            if (set == null)
+                continue;
+            set.remove(entry);
+            if (set.isEmpty()) {
+                byToken.remove(token);
+                Integer id = tokenIds.remove(token);
+                if (id != null)
+                    freeTokenIds.add(id);
+            }
+        }
+    }
+
+    private int newTokenId() {
+        if (!freeTokenIds.isEmpty())
+            return freeTokenIds.remove(freeTokenIds.size() - 1);
+        return nextTokenId++;
+    }
+
+    void clear() {
+        byFullName.clear();
+        byToken.clear();
+        entries.clear();
+        tokenIds.clear();
+        freeTokenIds.clear();
+        nextTokenId = 0;
+    }
+
+    // Các xe có họ tên trùng khớp hoàn toàn (tên truyền vào đã được chuẩn hóa)
+    ArrayList<Vehicle> findExact(String normalizedName) {
+        ArrayList<Vehicle> same = byFullName.get(normalizedName.toLowerCase(Locale.ROOT));
+        return same == null ? new ArrayList<>() : new ArrayList<>(same);
+    }
+
+    /*
+     * Tìm xe mà MỌI token của truy vấn đều khớp với ít nhất một token trong họ
+     * tên: trùng, là tiền tố, hoặc sai khác trong giới hạn maxEdits.
+     * Kết quả: khớp trọn từ trước, sau đó khớp tiền tố, cuối cùng là khớp gần
+     * đúng; cùng mức thì giữ thứ tự thêm xe.
+     */
+    ArrayList<Vehicle> search(String query) {
+        ArrayList<Vehicle> result = new ArrayList<>();
+        String[] queryTokens = tokenize(query == null ? "" : query);
+        if (queryTokens.length == 0)
+            return result;
+
+        // levels[q].get(tokenId) = mức khớp của token tokenId với token truy vấn q
+        // (0: trùng, 1: tiền tố, 2: gần đúng, -1: không khớp). Chỉ chứa các
+        // token khớp nên chi phí theo số token khớp, không theo kích thước chỉ mục.
+        // Token truy vấn có ít ứng viên nhất làm gốc; các token còn lại chỉ cần tra
+        // bảng trên từng xe ứng viên, không phải hợp/giao các tập lớn.
+        TokenLevels[] levels = new TokenLevels[queryTokens.length];
+        ArrayList<String> driverKeys = null;
+        int driverCost = Integer.MAX_VALUE;
+        for (int q = 0; q < queryTokens.length; q++) {
+            levels[q] = new TokenLevels();
+            ArrayList<String> keys = matchingTokens(queryTokens[q], levels[q]);
+            int cost = 0;
+            for (String key : keys) {
+                cost += byToken.get(key).size();
+            }
+            if (cost < driverCost) {
+                driverCost = cost;
+                driverKeys = keys;
+            }
+        }
+        if (driverCost == 0)
+            return result;
+
+        // Gom theo mức khớp để khỏi phải sắp xếp
+        ArrayList<ArrayList<Vehicle>> buckets = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            buckets.add(new ArrayList<>());
+        // Một xe chỉ có thể xuất hiện ở nhiều danh sách gốc khi gốc gồm nhiều token
+        IdentityHashMap<Entry, Boolean> seen = driverKeys.size() > 1 ? new IdentityHashMap<>() : null;
+        for (String key : driverKeys) {
+            for (Entry entry : byToken.get(key)) {
+                if (seen != null && seen.put(entry, Boolean.TRUE) != null)
+                    continue;
+                int score = score(levels, entry.tokenIds);
+                if (score >= 0)
+                    buckets.get(score).add(entry.vehicle);
+            }
+        }
+        for (ArrayList<Vehicle> bucket : buckets)
+            result.addAll(bucket);
+        return result;
+    }
+
+    // Ghi mức khớp của các token trong chỉ mục với một token truy vấn vào
+    // levels, trả về danh sách các token khớp
+    private ArrayList<String> matchingTokens(String token, TokenLevels levels) {
+        ArrayList<String> keys = new ArrayList<>();
+        SortedMap<String, LinkedHashSet<Entry>> prefixed = byToken.subMap(token, token + Character.MAX_VALUE);
+        for (String key : prefixed.keySet()) {
+            levels.put(tokenIds.get(key), key.equals(token) ? 0 : 1);
+            keys.add(key);
+        }
+
+        int maxEdits = maxEdits(token);
+        if (maxEdits == 0)
+            return keys;
+        // Số token phân biệt trong họ tên người Việt rất ít (vài nghìn), duyệt
+        // toàn bộ với bộ lọc độ dài vẫn đủ nhanh
+        for (String candidate : byToken.keySet()) {
+            if (Math.abs(candidate.length() - token.length()) > maxEdits || candidate.startsWith(token))
+                continue;
+            if (editDistance(token, candidate, maxEdits) <= maxEdits) {
+                levels.put(tokenIds.get(candidate), 2);
+                keys.add(candidate);
+            }
+        }
+        return keys;
+    }
+
+    // Mức khớp của một xe = mức kém nhất giữa các token truy vấn, -1 nếu có
+    // token truy vấn không khớp token nào trong họ tên
+    private static int score(TokenLevels[] levels, int[] nameTokenIds) {
+        int worst = 0;
+        for (TokenLevels level : levels) {
+            int best = -1;
+            for (int id : nameTokenIds) {
+                int s = level.get(id);
+                if (s >= 0 && (best < 0 || s < best))
+                    best = s;
+            }
+            if (best < 0)
+                return -1;
+            worst = Math.max(worst, best);
+        }
+        return worst;
+    }
+
+    /*
+     * Mức khớp theo mã token của một token truy vấn: bảng băm địa chỉ mở chỉ
+     * chứa các token khớp (mã + 1, 0 là ô trống). Mỗi truy vấn dùng bảng riêng
+     * nên nhiều luồng tìm kiếm song song không đụng nhau.
+     */
+    private static final class TokenLevels {
+        private int[] keys = new int[16];
+        private byte[] values = new byte[16];
+        private int size;
+
+        void put(int tokenId, int level) {
+            if ((size + 1) * 2 > keys.length)
+                grow();
+            int i = slot(tokenId);
+            if (keys[i] == 0) {
+                keys[i] = tokenId + 1;
+                size++;
+            }
+            values[i] = (byte) level;
+        }
+
+        // Mức khớp của token, -1 nếu không khớp
+        int get(int tokenId) {
+            int i = slot(tokenId);
+            return keys[i] == 0 ? -1 : values[i];
+        }
+
+        // Ô chứa tokenId, hoặc ô trống nơi nó sẽ được đặt
+        private int slot(int tokenId) {
+            int mask = keys.length - 1;
+            int h = tokenId * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (keys[i] != 0 && keys[i] != tokenId + 1)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            byte[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new byte[oldKeys.length * 2];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = slot(oldKeys[j] - 1);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+    // Số ký tự sai khác cho phép theo độ dài token
+    private static int maxEdits(String token) {
+        if (token.length() >= 8)
+            return 2;
+        if (token.length() >= 4)
+            return 1;
+        return 0;
+    }
+
+    // Khoảng cách Levenshtein có giới hạn: dừng sớm và trả về limit + 1 khi vượt
+    static int editDistance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit)
+            return limit + 1;
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++)
+            prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (cur[j] < rowMin)
+                    rowMin = cur[j];
+            }
+            if (rowMin > limit)
+                return limit + 1;
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[m];
+    }
+
+    // Tách họ tên thành các token chữ thường, bỏ dấu tiếng Việt (đ -> d) và bỏ
+    // token lặp lại trong cùng một họ tên
+    static String[] tokenize(String name) {
+        String trimmed = name.trim();
+        if (trimmed.isEmpty())
+            return new String[0];
+        String folded = Normalizer.normalize(trimmed.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .replace('đ', 'd');
+        return new LinkedHashSet<>(Arrays.asList(folded.split("\\s+"))).toArray(new String[0]);
+    }
+}
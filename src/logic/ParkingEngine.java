@@ -0,0 +1,101 @@
+package logic;
+
+import java.io.IOException;
+
+/**
+ * Vòng đời của ParkingLot khi chạy không có giao diện (máy chủ, kiosk cổng,
+ * kiểm thử tải): khởi động = đọc dữ liệu, định kỳ chuyển vé cũ sang tầng lạnh
+ * và lưu ảnh chụp xuống file ở luồng nền (SnapshotScheduler), dừng = lưu lần
+ * cuối. Không phụ thuộc AWT/Swing.
+ */
+public class ParkingEngine {
+    private final DataManager dataManager;
+    private final long saveIntervalSeconds;
+    // volatile để đọc được mà không cần khóa engine (stop giữ khóa engine trong
+    // lúc chờ luồng lưu kết thúc)
+    private volatile ParkingLot parkingLot;
+    private volatile SnapshotScheduler snapshots;
+    private Thread shutdownHook;
+
+    // saveIntervalSeconds <= 0: không lưu định kỳ, chỉ lưu khi dừng
+    public ParkingEngine(DataManager dataManager, long saveIntervalSeconds) {
+        this.dataManager = dataManager;
+        this.saveIntervalSeconds = saveIntervalSeconds;
+    }
+
+    // Đọc dữ liệu và bắt đầu lưu định kỳ
+    public synchronized void start() throws IOException {
+        if (parkingLot != null)
+            return;
+        parkingLot = new ParkingLot(dataManager);
+        snapshots = new SnapshotScheduler(parkingLot, saveIntervalSeconds);
+        snapshots.start();
+    }
+
+    // Đảm bảo dữ liệu được lưu cả khi tiến trình bị tắt bằng Ctrl+C / SIGTERM
+    public synchronized void installShutdownHook() {
+        if (shutdownHook != null)
+            return;
+        shutdownHook = new Thread(() -> {
+            try {
+                stop();
+            } catch (IOException | RuntimeException e) {
+                // Lỗi đã được ghi vào SnapshotScheduler (getFailureCount/getLastError)
+            }
+        }, "parking-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    // Dừng lưu định kỳ, lưu lần cuối rồi đóng nhật ký. Gọi nhiều lần không sao.
+    // Lưu lỗi thì nhật ký là bản lưu bền duy nhất của các thay đổi từ lần lưu
+    // trước, nên vẫn được ghi hết và đóng; lỗi lưu được ném lại sau đó.
+    public synchronized void stop() throws IOException {
+        if (parkingLot == null)
+            return;
+        snapshots.stop();
+        try {
+            snapshots.saveNow();
+        } catch (IOException | RuntimeException e) {
+            try {
+                closeParkingLot();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+        closeParkingLot();
+    }
+
+    // Đóng nhật ký của ParkingLot; lỗi được ghi vào số liệu của bộ lưu như
+    // các lần lưu khác
+    private void closeParkingLot() throws IOException {
+        try {
+            parkingLot.close();
+        } catch (IOException e) {
+            snapshots.recordFailure(e);
+            throw e;
+        } finally {
+            parkingLot = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return parkingLot != null;
+    }
+
+    // ParkingLot đang chạy, null nếu chưa start hoặc đã stop
+    public ParkingLot getParkingLot() {
+        return parkingLot;
+    }
+
+    // Bộ lưu định kỳ và số liệu các lần lưu, null nếu chưa start
+    public SnapshotScheduler getSnapshotScheduler() {
+        return snapshots;
+    }
+
+    public void save() throws IOException {
+        SnapshotScheduler scheduler = snapshots;
+        if (parkingLot != null && scheduler != null)
+            scheduler.saveNow();
+    }
+}
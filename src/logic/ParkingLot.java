@@ -1,20 +1,369 @@
 package logic;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
+/*
+ * ParkingLot an toàn khi nhiều cổng vào/ra gọi đồng thời, dùng khóa phân vùng:
+ * - registryLock: danh sách xe, chỉ mục tên chủ xe (đỗ xe giữ khóa đọc để xe
+ * không bị xóa giữa chừng).
+ * - spotLocks: mỗi loại xe một khóa đọc/ghi riêng. Cổng vào/ra chỉ giữ khóa
+ * ĐỌC nên các cổng không chờ nhau ở khóa này; riêng việc chiếm/trả chỗ là
+ * compare-and-set trong SpotPool và không bao giờ chặn, vé được tạo nguyên tử
+ * bằng computeIfAbsent theo biển số. Khóa GHI chỉ dùng cho thay đổi cấu trúc
+ * (thêm chỗ, reset, lưu file). Tuy vậy cổng vẫn đi qua khóa: cổng vào và ra
+ * lấy khóa đọc loại xe, cổng vào lấy thêm khóa đọc registryLock và khóa ghi
+ * historyLock (ghi vé mới, rất ngắn), nên vẫn có thể phải chờ khi một thay
+ * đổi cấu trúc đang giữ hoặc đang xếp hàng chờ khóa GHI.
+ * - spotTableLock: cấu trúc bảng chỗ đỗ (danh sách, mảng theo mã).
+ * - historyLock: lịch sử vé và chỉ mục mã vé.
+ * Thứ tự lấy khóa luôn là: (saveLock ->) registryLock -> spotLocks (theo thứ
+ * tự enum) -> spotTableLock -> historyLock, để tránh deadlock.
+ * Các chỉ mục theo biển số là ConcurrentHashMap nên tra cứu không cần khóa
+ * (trừ vé ở tầng lạnh, đọc dưới khóa đọc historyLock).
+ */
 public class ParkingLot {
     private DataManager dataManager;
     private ArrayList<Vehicle> vehicles;
     private ArrayList<ParkingSpot> spots;
     private ArrayList<Ticket> tickets;
 
+    // Các khóa phân vùng (xem chú thích đầu class)
+    private final ReentrantReadWriteLock registryLock = new ReentrantReadWriteLock();
+    private final EnumMap<VehicleType, ReentrantReadWriteLock> spotLocks = new EnumMap<>(VehicleType.class);
+    private final ReentrantReadWriteLock spotTableLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock historyLock = new ReentrantReadWriteLock();
+
+    // Chỉ mục theo biển số đã chuẩn hóa (xem normalizePlate) để tra cứu O(1)
+    private ConcurrentHashMap<String, Vehicle> vehicleByPlate = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, ParkingSpot> spotByPlate = new ConcurrentHashMap<>(); // chỉ chứa chỗ đang có xe
+    // Tập vé đang hoạt động (chưa ra), cập nhật dần khi đỗ/lấy xe: theo biển số
+    // để kiểm tra, theo mã vé để liệt kê đúng thứ tự vào bãi
+    private ConcurrentHashMap<String, Ticket> activeTicketByPlate = new ConcurrentHashMap<>();
+    private ConcurrentSkipListMap<Integer, Ticket> activeTicketById = new ConcurrentSkipListMap<>();
+    // Vé đã ra gặp đầu tiên ở tầng nóng (tầng lạnh tra qua ColdTicketStore)
+    private ConcurrentHashMap<String, Ticket> usedTicketByPlate = new ConcurrentHashMap<>();
+
+    // Chỉ mục tên chủ xe (khớp chính xác, theo tiền tố và gần đúng)
+    private OwnerNameIndex ownerIndex = new OwnerNameIndex();
+
+    // Chỉ mục chỗ đỗ theo mã (phần tử thứ i là chỗ có mã i) và mã lớn nhất hiện có
+    private ParkingSpot[] spotById = new ParkingSpot[16];
+    private int maxSpotID;
+    // Tập chỗ trống riêng cho từng loại xe
+    private EnumMap<VehicleType, SpotPool> freeSpots = new EnumMap<>(VehicleType.class);
+    // Tổng số chỗ theo loại xe (theo ordinal). Số chỗ trống lấy từ SpotPool nên
+    // đếm chỗ không cần duyệt danh sách.
+    private final AtomicIntegerArray spotCountByType = new AtomicIntegerArray(VehicleType.values().length);
+
+    // Chỉ mục vé ở tầng nóng theo mã: phần tử thứ i là vé có mã ticketIdBase + i
+    // (null nếu không có). Mã nhỏ hơn ticketIdBase đã chuyển sang tầng lạnh.
+    private ArrayList<Ticket> ticketById = new ArrayList<>();
+    private int ticketIdBase;
+    // Các vé ở tầng nóng theo biển số đã chuẩn hóa, theo thứ tự trong tickets
+    // (truy cập dưới historyLock)
+    private HashMap<String, ArrayList<Ticket>> hotTicketsByPlate = new HashMap<>();
+    // Tầng lạnh: vé đã đóng lâu hơn coldTicketAge, lưu gọn dạng cột (xem
+    // ColdTicketStore). Danh sách tickets chỉ còn vé đang hoạt động và vé gần đây.
+    private final ColdTicketStore coldTickets = new ColdTicketStore();
+    private volatile Duration coldTicketAge = Duration.ofDays(30);
+    // Lịch sử chưa nạp: các phân đoạn tháng và vé đã có trong file vé lúc khởi
+    // động trừ vé chưa ra, chỉ được đọc từ đĩa khi cần (xem TicketHistory). Đứng
+    // trước tầng lạnh.
+    private TicketHistory history = TicketHistory.EMPTY;
+    // Mã vé lớn nhất đã từng cấp, được lưu lại qua DataManager để mã vé không
+    // bao giờ bị trùng kể cả sau khi reset/lưu trữ vé cũ
+    private final AtomicInteger lastTicketID = new AtomicInteger();
+    // Đồng hồ cấp giờ vào/ra cho vé. Mặc định là giờ hệ thống; mô phỏng/kiểm
+    // thử thay bằng đồng hồ riêng để chạy nhanh hơn thời gian thực.
+    private volatile Clock clock = Clock.systemDefaultZone();
+    // Nhật ký thay đổi kể từ lần lưu gần nhất (xem Journal). null trong lúc
+    // đang áp dụng lại nhật ký khi khởi động để không ghi lặp bản ghi.
+    private Journal journal;
+    // Số bản ghi nhật ký hỏng bị bỏ qua khi khởi động (xem replayJournal)
+    private int skippedJournalRecords;
+    // Số vé chưa ra (trong file vé hoặc nhật ký) bị bỏ khỏi tập vé đang hoạt
+    // động khi khởi động vì biển số đã có vé khác đang hoạt động
+    private int duplicateOpenTickets;
+
+    // Thay đổi kể từ lần lưu gần nhất, để saveAllData chỉ ghi phần đã đổi: file
+    // xe/chỗ đỗ chỉ ghi lại khi có thay đổi; vé mới được ghi thêm vào cuối file
+    // vé, vé vừa đóng được sửa giờ ra tại chỗ (xem DataManager.appendTickets).
+    private volatile boolean vehiclesDirty;
+    private volatile boolean spotsDirty;
+    // Cần ghi lại toàn bộ file vé (sau reset, hoặc có quá nhiều thay đổi chưa lưu)
+    private volatile boolean ticketsRewrite;
+    private ArrayList<Ticket> newTickets = new ArrayList<>(); // dưới historyLock
+    private final ConcurrentLinkedQueue<Ticket> closedTickets = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger closedTicketCount = new AtomicInteger();
+    // Giới hạn số vé theo dõi giữa 2 lần lưu (khi không bao giờ lưu, vd: benchmark)
+    private static final int MAX_PENDING_TICKETS = 1 << 20;
+    // Thứ tự của các danh sách vé trả về: theo mã vé, không phụ thuộc vé đang nằm
+    // ở tầng nào (lịch sử trên đĩa, tầng lạnh, tầng nóng)
+    private static final Comparator<Ticket> BY_TICKET_ID = Comparator.comparingInt(Ticket::getTicketID);
+    // Chỉ một lần lưu tại một thời điểm (luồng lưu định kỳ, nút lưu, lúc tắt)
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private volatile long lastSavePauseNanos;
+
     public ParkingLot() throws IOException {
-        this.dataManager = new DataManager();
-        this.vehicles = dataManager.loadVehicles();
-        this.spots = dataManager.loadSpots();
-        this.tickets = dataManager.loadTickets();
+        this(new DataManager());
+    }
+
+    // Dùng DataManager tùy chọn (vd: thư mục dữ liệu riêng cho benchmark)
+    public ParkingLot(DataManager dataManager) throws IOException {
+        this.dataManager = dataManager;
+        for (VehicleType type : VehicleType.values()) {
+            freeSpots.put(type, new SpotPool());
+            spotLocks.put(type, new ReentrantReadWriteLock());
+        }
+        // Nạp 3 file cùng lúc, rồi dựng song song các chỉ mục độc lập với nhau.
+        // Từ file vé chỉ nạp vé chưa ra, lịch sử được đọc dần khi cần
+        // (DataManager.loadOpenTickets), nên thời gian khởi động không tăng theo
+        // độ dài lịch sử.
+        // Các luồng phụ chỉ chạm vào cấu trúc riêng của mình và đều được chờ
+        // xong (get) trước khi constructor tiếp tục.
+        ExecutorService loader = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "parking-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Future<ArrayList<Vehicle>> loadedVehicles = loader.submit(dataManager::loadVehicles);
+            Future<ArrayList<ParkingSpot>> loadedSpots = loader.submit(dataManager::loadSpots);
+            this.tickets = dataManager.loadOpenTickets();
+            this.history = dataManager.getTicketHistory();
+            this.lastTicketID.set(Math.max(dataManager.loadLastTicketID(), history.maxTicketID()));
+            this.vehicles = await(loadedVehicles);
+            this.spots = await(loadedSpots);
+
+            Future<?> vehicleIndexes = loader.submit(this::rebuildVehicleIndexes);
+            Future<?> spotIndexes = loader.submit(() -> {
+                rebuildSpotPlateIndex();
+                rebuildSpotPools();
+            });
+            rebuildTicketPlateIndexes();
+            rebuildTicketIdIndex();
+            await(vehicleIndexes);
+            await(spotIndexes);
+        } finally {
+            loader.shutdown();
+        }
+        Journal journal = dataManager.openJournal();
+        replayJournal(journal.readRecords());
+        this.journal = journal;
+        archiveColdTickets();
+    }
+
+    // Thay đồng hồ dùng cho giờ vào/ra của vé
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /*
+     * **************************************************************************
+     * *
+     * Chỉ mục biển số
+     * *
+     * **************************************************************************
+     */
+
+    // Chuẩn hóa biển số làm khóa chỉ mục (bỏ khoảng trắng đầu/cuối, chữ hoa)
+    private static String normalizePlate(String licensePlate) {
+        return licensePlate.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Chờ một tác vụ nạp/dựng chỉ mục chạy ở luồng phụ, ném lại lỗi của nó
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bị ngắt khi đang nạp dữ liệu");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    // Dựng lại các chỉ mục biển số từ các danh sách (dùng sau khi load file).
+    // Mỗi hàm chỉ ghi vào chỉ mục của riêng nó nên chạy song song được.
+    // putIfAbsent giữ đúng kết quả của phép duyệt tuần tự trước đây: bản ghi đầu
+    // tiên trong danh sách được ưu tiên.
+    private void rebuildVehicleIndexes() {
+        vehicleByPlate.clear();
+        ownerIndex.clear();
+        for (Vehicle v : vehicles) {
+            if (v.getLicensePlate() != null)
+                vehicleByPlate.putIfAbsent(normalizePlate(v.getLicensePlate()), v);
+            ownerIndex.add(v);
+        }
+    }
+
+    private void rebuildSpotPlateIndex() {
+        spotByPlate.clear();
+        for (ParkingSpot spot : spots) {
+            if (spot.isOccupied() && spot.getLicensePlate() != null)
+                spotByPlate.putIfAbsent(normalizePlate(spot.getLicensePlate()), spot);
+        }
+    }
+
+    private void rebuildTicketPlateIndexes() {
+        activeTicketByPlate.clear();
+        activeTicketById.clear();
+        usedTicketByPlate.clear();
+        hotTicketsByPlate.clear();
+        for (Ticket ticket : tickets) {
+            indexTicket(ticket);
+            indexHotTicket(ticket);
+        }
+    }
+
+    // Dựng lại chỉ mục mã chỗ và tập chỗ trống theo loại xe
+    private void rebuildSpotPools() {
+        spotById = new ParkingSpot[16];
+        maxSpotID = 0;
+        for (SpotPool pool : freeSpots.values()) {
+            pool.clear();
+        }
+        for (int t = 0; t < spotCountByType.length(); t++) {
+            spotCountByType.set(t, 0);
+        }
+        for (ParkingSpot spot : spots) {
+            int id = spot.getSpotID();
+            if (id < 0 || getSpotBySpotID(id) != null)
+                continue; // mã không hợp lệ hoặc trùng mã: giữ chỗ xuất hiện đầu tiên
+            indexSpot(spot);
+            if (spot.getAllowedType() != null)
+                spotCountByType.incrementAndGet(spot.getAllowedType().ordinal());
+            if (!spot.isOccupied() && spot.getAllowedType() != null) {
+                SpotPool pool = freeSpots.get(spot.getAllowedType());
+                pool.ensureCapacity(id);
+                pool.release(id);
+            }
+        }
+    }
+
+    // Khóa ghi / mở khóa ghi tất cả các loại xe (theo thứ tự enum)
+    private void lockAllSpotTypes() {
+        for (VehicleType type : VehicleType.values()) {
+            spotLocks.get(type).writeLock().lock();
+        }
+    }
+
+    private void unlockAllSpotTypes() {
+        for (VehicleType type : VehicleType.values()) {
+            spotLocks.get(type).writeLock().unlock();
+        }
+    }
+
+    // Khóa đọc / mở khóa đọc tất cả các loại xe (xử lý theo loạt)
+    private void readLockAllSpotTypes() {
+        for (VehicleType type : VehicleType.values()) {
+            spotLocks.get(type).readLock().lock();
+        }
+    }
+
+    private void readUnlockAllSpotTypes() {
+        for (VehicleType type : VehicleType.values()) {
+            spotLocks.get(type).readLock().unlock();
+        }
+    }
+
+    // Đặt chỗ đỗ vào mảng chỉ mục theo mã (mở rộng mảng gấp đôi khi cần)
+    private void indexSpot(ParkingSpot spot) {
+        int id = spot.getSpotID();
+        if (id >= spotById.length) {
+            spotById = Arrays.copyOf(spotById, Math.max(spotById.length * 2, id + 1));
+        }
+        spotById[id] = spot;
+        if (id > maxSpotID)
+            maxSpotID = id;
+    }
+
+    // Dựng lại chỉ mục mã vé, đồng thời đảm bảo bộ sinh mã không lùi về sau mã
+    // lớn nhất đang có trong file
+    private void rebuildTicketIdIndex() {
+        ticketById.clear();
+        ticketIdBase = 0;
+        for (Ticket ticket : tickets) {
+            indexTicketId(ticket);
+            if (ticket.getTicketID() > lastTicketID.get())
+                lastTicketID.set(ticket.getTicketID());
+        }
+    }
+
+    // Đặt vé vào đúng vị trí theo mã trong chỉ mục (giữ vé xuất hiện đầu tiên)
+    private void indexTicketId(Ticket ticket) {
+        int index = ticket.getTicketID() - ticketIdBase;
+        if (index < 0)
+            return;
+        while (ticketById.size() <= index)
+            ticketById.add(null);
+        if (ticketById.get(index) == null)
+            ticketById.set(index, ticket);
+    }
+
+    // Đưa một vé vào chỉ mục theo trạng thái hiện tại của nó
+    private void indexTicket(Ticket ticket) {
+        if (ticket.getLicensePlate() == null)
+            return;
+        String key = normalizePlate(ticket.getLicensePlate());
+        if (ticket.getExitTime() == null) {
+            if (activeTicketByPlate.putIfAbsent(key, ticket) == null)
+                activeTicketById.put(ticket.getTicketID(), ticket);
+            else
+                duplicateOpenTickets++; // dữ liệu lệch: xe đã có vé khác đang hoạt động
+        } else {
+            usedTicketByPlate.putIfAbsent(key, ticket);
+        }
+    }
+
+    // Thêm vé vào danh sách vé tầng nóng của biển số (gọi khi đang giữ khóa ghi
+    // historyLock hoặc lúc nạp)
+    private void indexHotTicket(Ticket ticket) {
+        if (ticket.getLicensePlate() == null)
+            return;
+        hotTicketsByPlate.computeIfAbsent(normalizePlate(ticket.getLicensePlate()), k -> new ArrayList<>(1))
+                .add(ticket);
     }
 
     /*
@@ -27,23 +376,21 @@ public class ParkingLot {
      * **************************************************************************
      */
 
-    // Trả về danh sách phương tiện
+    // Trả về danh sách phương tiện (bản sao, an toàn khi duyệt song song với cổng)
     public ArrayList<Vehicle> getVehicles() {
-        return vehicles;
+        registryLock.readLock().lock();
+        try {
+            return new ArrayList<>(vehicles);
+        } finally {
+            registryLock.readLock().unlock();
+        }
     }
 
     // Tìm xe theo biển số xe
     public Vehicle getVehicleByLicensePlate(String licensePlate) {
         if (licensePlate == null)
             return null;
-        String target = licensePlate.trim();
-        for (Vehicle v : vehicles) {
-            String plate = v.getLicensePlate();
-            if (plate != null && plate.equalsIgnoreCase(target)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicleByPlate.get(normalizePlate(licensePlate));
     }
 
     // Tìm tất cả xe theo họ tên chủ xe (chuẩn hóa, không phân biệt hoa thường)
@@ -54,14 +401,26 @@ public class ParkingLot {
         String trimmed = ownerName.trim();
         if (trimmed.isEmpty())
             return result;
-        String target = Vehicle.chuanHoaHoTen(trimmed);
-        for (Vehicle v : vehicles) {
-            String name = v.getOwnerName();
-            if (name != null && name.equalsIgnoreCase(target)) {
-                result.add(v);
-            }
+        registryLock.readLock().lock();
+        try {
+            return ownerIndex.findExact(Vehicle.chuanHoaHoTen(trimmed));
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    // Tìm xe theo một phần họ tên chủ xe: mỗi từ của truy vấn khớp trọn từ, khớp
+    // tiền tố ("Nguyen Va") hoặc gõ sai 1-2 ký tự; không phân biệt dấu tiếng Việt.
+    // Kết quả khớp tốt hơn đứng trước.
+    public ArrayList<Vehicle> searchVehiclesByOwnerName(String query) {
+        if (query == null || query.trim().isEmpty())
+            return new ArrayList<>();
+        registryLock.readLock().lock();
+        try {
+            return ownerIndex.search(query);
+        } finally {
+            registryLock.readLock().unlock();
         }
-        return result;
     }
 
     // Thêm/Xóa phương tiện
@@ -73,26 +432,49 @@ public class ParkingLot {
             return false;
         if (ownerName.trim().isEmpty())
             return false;
-        if (getVehicleByLicensePlate(lp) != null)
-            return false;
-        vehicles.add(new Vehicle(lp, type, ownerName, ownerPhone));
+        Vehicle v = new Vehicle(lp, type, ownerName, ownerPhone);
+        registryLock.writeLock().lock();
+        try {
+            if (vehicleByPlate.putIfAbsent(normalizePlate(lp), v) != null)
+                return false; // Trùng biển số
+            vehicles.add(v);
+            ownerIndex.add(v);
+            vehiclesDirty = true;
+            if (journal != null)
+                journal.vehicleAdded(v);
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+        awaitJournal();
         return true; // Thêm thành công
     }
 
     public boolean removeVehicle(String licensePlate) {
         if (licensePlate == null)
             return false;
-        Vehicle v = getVehicleByLicensePlate(licensePlate);
-        if (v == null)
-            return false;
-        // Chặn nếu đang đỗ
-        if (getSpotByLicensePlate(licensePlate) != null)
-            return false;
-        // Chặn nếu còn vé active (dữ liệu lệch)
-        Ticket t = getTicketByLicensePlate(licensePlate);
-        if (t != null && t.getExitTime() == null)
-            return false;
-        vehicles.remove(v);
+        String key = normalizePlate(licensePlate);
+        // Khóa ghi: không có lượt đỗ nào của xe này đang diễn ra song song
+        registryLock.writeLock().lock();
+        try {
+            Vehicle v = vehicleByPlate.get(key);
+            if (v == null)
+                return false;
+            // Chặn nếu đang đỗ
+            if (spotByPlate.containsKey(key))
+                return false;
+            // Chặn nếu còn vé active (dữ liệu lệch)
+            if (activeTicketByPlate.containsKey(key))
+                return false;
+            vehicles.remove(v);
+            vehicleByPlate.remove(key);
+            ownerIndex.remove(v);
+            vehiclesDirty = true;
+            if (journal != null)
+                journal.vehicleRemoved(v.getLicensePlate());
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+        awaitJournal();
         return true;
     }
 
@@ -106,19 +488,26 @@ public class ParkingLot {
      * **************************************************************************
      */
 
-    // Trả về danh sách vị trí đỗ
+    // Trả về danh sách vị trí đỗ (bản sao)
     public ArrayList<ParkingSpot> getSpots() {
-        return spots;
+        spotTableLock.readLock().lock();
+        try {
+            return new ArrayList<>(spots);
+        } finally {
+            spotTableLock.readLock().unlock();
+        }
     }
 
     // Tìm vị trí dựa theo tên
     public ParkingSpot getSpotBySpotID(int spotID) {
-        for (ParkingSpot spot : spots) {
-            if (spot.getSpotID() == spotID) {
-                return spot;
-            }
+        spotTableLock.readLock().lock();
+        try {
+            if (spotID < 0 || spotID >= spotById.length)
+                return null;
+            return spotById[spotID];
+        } finally {
+            spotTableLock.readLock().unlock();
         }
-        return null;
     }
 
     // Tìm tất cả chỗ đỗ phù hợp với loại xe
@@ -126,10 +515,15 @@ public class ParkingLot {
         ArrayList<ParkingSpot> result = new ArrayList<>();
         if (type == null)
             return result;
-        for (ParkingSpot spot : spots) {
-            if (spot.getAllowedType() == type) {
-                result.add(spot);
+        spotTableLock.readLock().lock();
+        try {
+            for (ParkingSpot spot : spots) {
+                if (spot.getAllowedType() == type) {
+                    result.add(spot);
+                }
             }
+        } finally {
+            spotTableLock.readLock().unlock();
         }
         return result;
     }
@@ -137,10 +531,15 @@ public class ParkingLot {
     // Tìm tất cả chỗ đỗ theo trạng thái (occupied = true: đang có xe, false: trống)
     public ArrayList<ParkingSpot> getSpotsByOccupancy(boolean occupied) {
         ArrayList<ParkingSpot> result = new ArrayList<>();
-        for (ParkingSpot spot : spots) {
-            if (spot.isOccupied() == occupied) {
-                result.add(spot);
+        spotTableLock.readLock().lock();
+        try {
+            for (ParkingSpot spot : spots) {
+                if (spot.isOccupied() == occupied) {
+                    result.add(spot);
+                }
             }
+        } finally {
+            spotTableLock.readLock().unlock();
         }
         return result;
     }
@@ -155,49 +554,90 @@ public class ParkingLot {
         return getSpotsByOccupancy(false);
     }
 
-    // Tìm chỗ đỗ trống đầu tiên phù hợp với loại xe
-    private ParkingSpot findFirstAvailableSpot(VehicleType type) {
+    // Chiếm (CAS) chỗ trống có mã nhỏ nhất phù hợp với loại xe.
+    // Phải gọi khi đang giữ khóa đọc của loại xe đó.
+    private ParkingSpot allocateSpot(VehicleType type) {
         if (type == null)
             return null;
-        for (ParkingSpot spot : spots) {
-            if (!spot.isOccupied() && spot.getAllowedType() == type) {
-                return spot;
-            }
+        int spotID = freeSpots.get(type).claim();
+        if (spotID < 0)
+            return null;
+        return getSpotBySpotID(spotID);
+    }
+
+    // Số chỗ trống / tổng số chỗ / số chỗ đang có xe của một loại xe, O(1) và
+    // không khóa (dùng cho bảng hiển thị ở cổng hỏi liên tục)
+    public int getFreeSpotCount(VehicleType type) {
+        return freeSpots.get(type).size();
+    }
+
+    public int getTotalSpotCount(VehicleType type) {
+        return spotCountByType.get(type.ordinal());
+    }
+
+    public int getOccupiedSpotCount(VehicleType type) {
+        // Đọc số trống trước: tổng chỉ tăng trong lúc thêm chỗ nên hiệu không âm
+        // (trừ lúc đang reset)
+        int free = getFreeSpotCount(type);
+        return Math.max(0, getTotalSpotCount(type) - free);
+    }
+
+    // Ảnh chụp số chỗ của mọi loại xe
+    public Occupancy getOccupancy() {
+        VehicleType[] types = VehicleType.values();
+        int[] total = new int[types.length];
+        int[] free = new int[types.length];
+        for (VehicleType type : types) {
+            free[type.ordinal()] = getFreeSpotCount(type);
+            total[type.ordinal()] = Math.max(free[type.ordinal()], getTotalSpotCount(type));
         }
-        return null;
+        return new Occupancy(total, free);
     }
 
     // Tìm vị trí đang có xe theo biển số xe
     public ParkingSpot getSpotByLicensePlate(String licensePlate) {
         if (licensePlate == null)
             return null;
-        String target = licensePlate.trim();
-        for (ParkingSpot spot : getOccupiedSpots()) {
-            String plate = spot.getLicensePlate();
-            if (plate != null && plate.equalsIgnoreCase(target)) {
-                return spot;
-            }
-        }
-        return null;
+        return spotByPlate.get(normalizePlate(licensePlate));
     }
 
     // Thêm vị trí
     public boolean addSpot(VehicleType allowedType) {
-        if (allowedType == null)
-            return false;
+        return addSpots(allowedType, 1) == 1;
+    }
+
+    // Thêm nhiều vị trí cùng loại xe một lúc, trả về số vị trí đã thêm.
+    // ID tự tăng tiếp nối từ mã lớn nhất hiện có (maxSpotID được duy trì sẵn nên
+    // không phải duyệt lại danh sách), chỗ mới đều trống.
+    public int addSpots(VehicleType allowedType, int count) {
+        if (allowedType == null || count <= 0)
+            return 0;
 
-        // Tự động tìm ID lớn nhất để tăng dần
-        int maxId = 0;
-        for (ParkingSpot s : spots) {
-            if (s.getSpotID() > maxId) {
-                maxId = s.getSpotID();
+        ReentrantReadWriteLock.WriteLock typeLock = spotLocks.get(allowedType).writeLock();
+        typeLock.lock();
+        spotTableLock.writeLock().lock();
+        try {
+            spots.ensureCapacity(spots.size() + count);
+            SpotPool pool = freeSpots.get(allowedType);
+            pool.ensureCapacity(maxSpotID + count);
+            int firstSpotID = maxSpotID + 1;
+            for (int i = 0; i < count; i++) {
+                ParkingSpot spot = new ParkingSpot(maxSpotID + 1, allowedType, null, false);
+                spots.add(spot);
+                indexSpot(spot);
+                // Tăng tổng trước khi đánh dấu trống để số chỗ trống không vượt tổng
+                spotCountByType.incrementAndGet(allowedType.ordinal());
+                pool.release(spot.getSpotID());
             }
+            spotsDirty = true;
+            if (journal != null)
+                journal.spotsAdded(allowedType, firstSpotID, count);
+        } finally {
+            spotTableLock.writeLock().unlock();
+            typeLock.unlock();
         }
-        int newId = maxId + 1;
-
-        // Thêm spot mới: ID tự tăng, plate null, occupied false
-        spots.add(new ParkingSpot(newId, allowedType, null, false));
-        return true;
+        awaitJournal();
+        return count;
     }
 
     /*
@@ -211,60 +651,281 @@ public class ParkingLot {
      * **************************************************************************
      */
 
-    // Trả về danh sách vé đỗ
+    // Trả về danh sách vé đỗ (bản sao) theo mã vé tăng dần: gồm lịch sử chưa
+    // nạp, tầng lạnh và tầng nóng. Lịch sử được đọc từ đĩa và vé tầng lạnh được
+    // tạo lại khi gọi nên tốn kém với lịch sử dài; chỉ dùng khi thật sự cần toàn
+    // bộ lịch sử, để hiển thị thì dùng getTicketsBefore.
     public ArrayList<Ticket> getTickets() {
-        return tickets;
+        TicketHistory stored;
+        ArrayList<Ticket> memory;
+        historyLock.readLock().lock();
+        try {
+            stored = history;
+            memory = new ArrayList<>(coldTickets.size() + tickets.size());
+            for (Ticket ticket : coldTickets.tickets()) {
+                memory.add(ticket);
+            }
+            memory.addAll(tickets);
+        } finally {
+            historyLock.readLock().unlock();
+        }
+        // Đọc đĩa sau khi nhả khóa để không chặn cổng vào
+        ArrayList<Ticket> result = new ArrayList<>(stored.size() + memory.size());
+        stored.forEach(result::add);
+        result.addAll(memory);
+        result.sort(BY_TICKET_ID);
+        return result;
+    }
+
+    /*
+     * Một trang lịch sử vé, vé mới nhất trước (mã vé giảm dần): tối đa limit vé
+     * có mã nhỏ hơn beforeID và thỏa filter (null: mọi vé). Trang đầu dùng
+     * beforeID = Integer.MAX_VALUE, trang sau dùng mã của vé cuối trang trước.
+     * Chỉ đọc từ đĩa các phân đoạn/trang của file vé có thể chứa vé của trang
+     * này, nên chi phí không tăng theo độ dài lịch sử.
+     */
+    public ArrayList<Ticket> getTicketsBefore(int beforeID, int limit, Predicate<? super Ticket> filter) {
+        TicketPage page = new TicketPage(beforeID, limit, filter);
+        TicketHistory stored;
+        historyLock.readLock().lock();
+        try {
+            stored = history;
+            for (Ticket ticket : tickets) {
+                page.offer(ticket);
+            }
+            coldTickets.collect(page);
+        } finally {
+            historyLock.readLock().unlock();
+        }
+        // Đọc đĩa sau khi nhả khóa để không chặn cổng vào
+        stored.collect(page);
+        return page.tickets();
+    }
+
+    // Tổng số vé (cả lịch sử chưa nạp và hai tầng)
+    public int getTicketCount() {
+        historyLock.readLock().lock();
+        try {
+            return history.size() + coldTickets.size() + tickets.size();
+        } finally {
+            historyLock.readLock().unlock();
+        }
+    }
+
+    // Số vé lịch sử chưa nạp vào bộ nhớ (còn nằm trong file vé và các phân đoạn tháng)
+    public int getStoredTicketCount() {
+        historyLock.readLock().lock();
+        try {
+            return history.size();
+        } finally {
+            historyLock.readLock().unlock();
+        }
+    }
+
+    // Số vé đang nằm ở tầng lạnh
+    public int getColdTicketCount() {
+        historyLock.readLock().lock();
+        try {
+            return coldTickets.size();
+        } finally {
+            historyLock.readLock().unlock();
+        }
     }
 
     // Trả về danh sách vé đang hoạt động (chưa ra)
     public ArrayList<Ticket> getActiveTicket() {
-        ArrayList<Ticket> result = new ArrayList<>();
-        for (Ticket ticket : tickets) {
-            if (ticket.getExitTime() == null) {
-                result.add(ticket);
+        return new ArrayList<>(activeTicketById.values());
+    }
+
+    // Trả về tập vé đang hoạt động dưới dạng chỉ đọc, không sao chép.
+    // Tập này tự cập nhật khi xe vào/ra, chi phí duyệt chỉ phụ thuộc số xe đang
+    // trong bãi chứ không phụ thuộc độ dài lịch sử vé.
+    public Collection<Ticket> getActiveTicketView() {
+        return Collections.unmodifiableCollection(activeTicketById.values());
+    }
+
+    // Số vé đang hoạt động (số xe đang trong bãi)
+    public int getActiveTicketCount() {
+        return activeTicketById.size();
+    }
+
+    // Trả về danh sách vé đã sử dụng (đã ra) theo mã vé tăng dần. Đọc toàn bộ
+    // lịch sử như getTickets; để hiển thị thì dùng getTicketsBefore.
+    public ArrayList<Ticket> getUsedTicket() {
+        TicketHistory stored;
+        ArrayList<Ticket> memory = new ArrayList<>();
+        historyLock.readLock().lock();
+        try {
+            stored = history;
+            // Vé tầng lạnh đều đã đóng
+            for (Ticket ticket : coldTickets.tickets()) {
+                memory.add(ticket);
             }
+            for (Ticket ticket : tickets) {
+                if (ticket.getExitTime() != null) {
+                    memory.add(ticket);
+                }
+            }
+        } finally {
+            historyLock.readLock().unlock();
         }
+        ArrayList<Ticket> result = stored.find(ticket -> ticket.getExitTime() != null);
+        result.addAll(memory);
+        result.sort(BY_TICKET_ID);
         return result;
     }
 
-    // Trả về danh sách vé đã sử dụng (đã ra)
-    public ArrayList<Ticket> getUsedTicket() {
-        ArrayList<Ticket> result = new ArrayList<>();
-        for (Ticket ticket : tickets) {
-            if (ticket.getExitTime() != null) {
-                result.add(ticket);
+    // Tìm vé theo mã vé: trong bộ nhớ trước, không có mới đọc lịch sử trên đĩa
+    // (chỉ phân đoạn tháng và trang có khoảng mã chứa ticketID)
+    public Ticket getTicketByTicketID(int ticketID) {
+        TicketHistory stored;
+        historyLock.readLock().lock();
+        try {
+            int index = ticketID - ticketIdBase;
+            if (index >= 0 && index < ticketById.size() && ticketById.get(index) != null)
+                return ticketById.get(index);
+            Ticket cold = coldTickets.findById(ticketID);
+            if (cold != null)
+                return cold;
+            stored = history;
+        } finally {
+            historyLock.readLock().unlock();
+        }
+        return stored.findById(ticketID);
+    }
+
+    // Mọi vé của một biển số (cả lịch sử chưa nạp và tầng lạnh), theo mã vé
+    // tăng dần
+    public ArrayList<Ticket> getTicketsByLicensePlate(String licensePlate) {
+        if (licensePlate == null)
+            return new ArrayList<>();
+        String key = normalizePlate(licensePlate);
+        TicketHistory stored;
+        ArrayList<Ticket> memory;
+        historyLock.readLock().lock();
+        try {
+            stored = history;
+            memory = coldTickets.findByPlate(key);
+            ArrayList<Ticket> hot = hotTicketsByPlate.get(key);
+            if (hot != null)
+                memory.addAll(hot);
+        } finally {
+            historyLock.readLock().unlock();
+        }
+        ArrayList<Ticket> result = stored.find(
+                ticket -> ticket.getLicensePlate() != null && normalizePlate(ticket.getLicensePlate()).equals(key));
+        result.addAll(memory);
+        result.sort(BY_TICKET_ID);
+        return result;
+    }
+
+    // Các vé có mặt trong bãi trong khoảng [from, to) (vào trước to, chưa ra hoặc
+    // ra từ from trở đi; null là không giới hạn), theo mã vé tăng dần. Chỉ giải
+    // nén các phân đoạn tháng có khoảng thời gian giao với khoảng này.
+    public ArrayList<Ticket> getTicketsBetween(LocalDateTime from, LocalDateTime to) {
+        TicketHistory stored;
+        ArrayList<Ticket> memory = new ArrayList<>();
+        historyLock.readLock().lock();
+        try {
+            stored = history;
+            for (Ticket ticket : coldTickets.tickets()) {
+                if (TicketHistory.isPresent(ticket, from, to))
+                    memory.add(ticket);
             }
+            for (Ticket ticket : tickets) {
+                if (TicketHistory.isPresent(ticket, from, to))
+                    memory.add(ticket);
+            }
+        } finally {
+            historyLock.readLock().unlock();
         }
+        ArrayList<Ticket> result = stored.find(from, to, ticket -> true);
+        result.addAll(memory);
+        result.sort(BY_TICKET_ID);
         return result;
     }
 
-    // Tìm vé theo mã vé
-    public Ticket getTicketByTicketID(int ticketID) {
-        for (Ticket ticket : tickets) {
-            if (ticket.getTicketID() == ticketID) {
-                return ticket;
+    // Tuổi (tính từ giờ ra) để vé đã đóng được chuyển sang tầng lạnh; null để tắt
+    public void setColdTicketAge(Duration coldTicketAge) {
+        this.coldTicketAge = coldTicketAge;
+    }
+
+    public Duration getColdTicketAge() {
+        return coldTicketAge;
+    }
+
+    /*
+     * Chuyển các vé đã đóng lâu hơn coldTicketAge sang tầng lạnh, trả về số vé
+     * đã chuyển. Tầng nóng chỉ còn vé đang hoạt động và vé mới đóng nên bộ nhớ và
+     * chi phí duyệt không tăng theo số năm vận hành. Được gọi khi nạp dữ liệu và
+     * định kỳ (ParkingEngine).
+     */
+    public int archiveColdTickets() {
+        Duration age = coldTicketAge;
+        if (age == null)
+            return 0;
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(age);
+        historyLock.writeLock().lock();
+        try {
+            ArrayList<Ticket> hot = new ArrayList<>();
+            ArrayList<Ticket> moved = new ArrayList<>();
+            for (Ticket ticket : tickets) {
+                LocalDateTime exit = ticket.getExitTime();
+                if (exit != null && exit.isBefore(cutoff)) {
+                    coldTickets.add(ticket);
+                    moved.add(ticket);
+                } else {
+                    hot.add(ticket);
+                }
             }
+            if (moved.isEmpty())
+                return 0;
+            replaceHotTickets(hot);
+            // Vé đã chuyển chỉ còn ở dạng cột: không để chỉ mục giữ lại đối tượng cũ
+            forgetUsedTickets(moved);
+            return moved.size();
+        } finally {
+            historyLock.writeLock().unlock();
+        }
+    }
+
+    // Thay tầng nóng bằng hot (gọi khi đang giữ khóa ghi historyLock). Chỉ mục
+    // mã vé chỉ còn trải từ mã nhỏ nhất của tầng nóng.
+    private void replaceHotTickets(ArrayList<Ticket> hot) {
+        tickets = hot;
+        hotTicketsByPlate = new HashMap<>();
+        for (Ticket ticket : hot) {
+            indexHotTicket(ticket);
+        }
+        int minID = lastTicketID.get() + 1;
+        for (Ticket ticket : hot) {
+            minID = Math.min(minID, ticket.getTicketID());
+        }
+        ticketById = new ArrayList<>();
+        ticketIdBase = Math.max(0, minID);
+        for (Ticket ticket : hot) {
+            indexTicketId(ticket);
         }
-        return null;
     }
 
-    // Tìm vé theo biển số xe
+    // Tìm vé theo biển số xe: vé đang hoạt động, không có thì vé đã ra gặp đầu
+    // tiên trong bộ nhớ (tầng lạnh rồi tầng nóng). Hàm này được cổng gọi liên
+    // tục nên không đọc lịch sử trên đĩa; cần cả lịch sử cũ thì dùng
+    // getTicketsByLicensePlate.
     public Ticket getTicketByLicensePlate(String licensePlate) {
         if (licensePlate == null)
             return null;
-        String target = licensePlate.trim();
-        Ticket used = null;
-        for (Ticket ticket : tickets) {
-            String plate = ticket.getLicensePlate();
-            if (plate != null && plate.equalsIgnoreCase(target)) {
-                if (ticket.getExitTime() == null) {
-                    return ticket; // ưu tiên vé active
-                } else if (used == null) {
-                    used = ticket;
-                }
-            }
+        String key = normalizePlate(licensePlate);
+        Ticket active = activeTicketByPlate.get(key);
+        if (active != null)
+            return active; // ưu tiên vé active
+        historyLock.readLock().lock();
+        try {
+            Ticket cold = coldTickets.firstByPlate(key);
+            return cold != null ? cold : usedTicketByPlate.get(key);
+        } finally {
+            historyLock.readLock().unlock();
         }
-        return used;
     }
 
     // Đỗ phương tiện
@@ -272,47 +933,106 @@ public class ParkingLot {
         if (licensePlate == null || licensePlate.isBlank())
             return false;
         String plate = licensePlate.trim();
+        String key = normalizePlate(plate);
+
+        GateResult.Status status;
+        // Giữ khóa đọc registry suốt lượt đỗ để xe không bị xóa giữa chừng
+        registryLock.readLock().lock();
+        try {
+            // 1. Kiểm tra xe có trong hệ thống chưa
+            Vehicle v = vehicleByPlate.get(key);
+            if (v == null)
+                return false; // Chưa đăng ký xe thì không cho đỗ
 
-        // 1. Kiểm tra xe có trong hệ thống chưa
-        Vehicle v = getVehicleByLicensePlate(plate);
-        if (v == null)
-            return false; // Chưa đăng ký xe thì không cho đỗ
+            // Khóa đọc của loại xe: các cổng cùng loại chạy song song với nhau
+            ReentrantReadWriteLock.ReadLock typeLock = spotLocks.get(v.getType()).readLock();
+            typeLock.lock();
+            try {
+                ArrayList<Ticket> created = new ArrayList<>(1);
+                status = parkLocked(key, plate, v, LocalDateTime.now(clock), created);
+                appendHistory(created);
+            } finally {
+                typeLock.unlock();
+            }
+        } finally {
+            registryLock.readLock().unlock();
+        }
+        awaitJournal();
+        return status == GateResult.Status.PARKED;
+    }
 
+    // Các bước 2-6 của việc đỗ xe. Phải gọi khi đang giữ khóa đọc registry và
+    // khóa đọc của loại xe; vé mới được thêm vào created để ghi lịch sử sau.
+    private GateResult.Status parkLocked(String key, String plate, Vehicle v, LocalDateTime entryTime,
+            ArrayList<Ticket> created) {
         // 2. Kiểm tra xe có đang đỗ ở đâu đó không
-        if (getSpotByLicensePlate(plate) != null)
-            return false;
+        if (spotByPlate.containsKey(key))
+            return GateResult.Status.ALREADY_PARKED;
 
         // 3. Kiểm tra có vé nào chưa thanh toán không
-        Ticket t = getTicketByLicensePlate(plate);
-        if (t != null && t.getExitTime() == null)
-            return false;
+        if (activeTicketByPlate.containsKey(key))
+            return GateResult.Status.ALREADY_PARKED;
 
-        // 4. Tìm chỗ trống phù hợp
-        ParkingSpot spot = findFirstAvailableSpot(v.getType());
+        // 4. Chiếm chỗ trống phù hợp (bản thân bước CAS không chặn cổng khác)
+        ParkingSpot spot = allocateSpot(v.getType());
         if (spot == null)
-            return false; // Hết chỗ
+            return GateResult.Status.NO_SPOT; // Hết chỗ
 
-        // 5. Thực hiện đỗ xe
-        spot.setOccupied(true);
-        spot.setLicensePlate(plate);
-
-        // 6. Tạo vé mới
-        int newTicketID = tickets.size() + 1;
-        Ticket newTicket = new Ticket(newTicketID, spot.getSpotID(), plate, LocalDateTime.now(), null);
-        tickets.add(newTicket);
+        // 5-6. Thực hiện đỗ xe và tạo vé mới. computeIfAbsent đảm bảo hai
+        // cổng cùng đọc một biển số thì chỉ một cổng tạo được vé; mã vé
+        // chỉ được cấp khi thật sự tạo vé nên không bị nhảy số. Bản ghi nhật ký
+        // được xếp hàng ngay trong đây, trước khi cổng ra có thể thấy vé, để bản
+        // ghi xe vào luôn đứng trước bản ghi xe ra của cùng vé; xếp hàng không
+        // chặn và không ghi file (luồng ghi nền của Journal làm việc đó).
+        Ticket[] ticket = new Ticket[1];
+        activeTicketByPlate.computeIfAbsent(key, k -> {
+            Ticket t = new Ticket(lastTicketID.incrementAndGet(), spot.getSpotID(), plate, entryTime, null);
+            spot.setOccupied(true);
+            spot.setLicensePlate(plate);
+            spotByPlate.put(k, spot);
+            spotsDirty = true;
+            activeTicketById.put(t.getTicketID(), t);
+            if (journal != null)
+                journal.parked(t);
+            ticket[0] = t;
+            return t;
+        });
+        if (ticket[0] == null) {
+            // Cổng khác vừa cho xe này vào trước: trả lại chỗ đã chiếm
+            freeSpots.get(v.getType()).release(spot.getSpotID());
+            return GateResult.Status.ALREADY_PARKED;
+        }
+        created.add(ticket[0]);
+        return GateResult.Status.PARKED;
+    }
 
-        return true;
+    // 7. Ghi các vé mới vào lịch sử vé (một lần khóa cho cả nhóm vé).
+    // Gọi trước khi nhả khóa loại xe để lúc lưu file chỗ có xe luôn có vé.
+    private void appendHistory(ArrayList<Ticket> created) {
+        if (created.isEmpty())
+            return;
+        historyLock.writeLock().lock();
+        try {
+            for (Ticket t : created) {
+                tickets.add(t);
+                indexTicketId(t);
+                indexHotTicket(t);
+                trackNewTicket(t);
+            }
+        } finally {
+            historyLock.writeLock().unlock();
+        }
     }
 
     // Lấy phương tiện ra
     public boolean retrieveVehicle(String licensePlate) {
         if (licensePlate == null || licensePlate.isBlank())
             return false;
-        String plate = licensePlate.trim();
+        String key = normalizePlate(licensePlate);
 
         // 1. Tìm vé đang hoạt động của xe này
-        Ticket ticket = getTicketByLicensePlate(plate);
-        if (ticket == null || ticket.getExitTime() != null)
+        Ticket ticket = activeTicketByPlate.get(key);
+        if (ticket == null)
             return false; // Không có vé hoặc vé đã đóng
 
         // 2. Tìm chỗ đỗ của xe này
@@ -320,31 +1040,543 @@ public class ParkingLot {
         if (spot == null)
             return false; // Lỗi dữ liệu
 
-        // 3. Cập nhật giờ ra cho vé
-        ticket.setExitTime(LocalDateTime.now());
+        ReentrantReadWriteLock.ReadLock typeLock = spotLocks.get(spot.getAllowedType()).readLock();
+        GateResult.Status status;
+        typeLock.lock();
+        try {
+            status = retrieveLocked(key, ticket, spot, LocalDateTime.now(clock));
+        } finally {
+            typeLock.unlock();
+        }
+        awaitJournal();
+        return status == GateResult.Status.RETRIEVED;
+    }
 
-        // 4. Giải phóng chỗ đỗ
+    // Các bước 3-5 của việc lấy xe. Phải gọi khi đang giữ khóa đọc của loại xe.
+    private GateResult.Status retrieveLocked(String key, Ticket ticket, ParkingSpot spot, LocalDateTime exitTime) {
+        // Gỡ vé khỏi tập active một cách nguyên tử: nếu hai cổng cùng trả
+        // một xe thì chỉ một cổng thành công. Giờ ra và bản ghi nhật ký được ghi/
+        // xếp hàng ngay trong lúc gỡ, để lượt vào mới của cùng biển số
+        // (computeIfAbsent trên cùng khóa) luôn xếp sau bản ghi xe ra này.
+        boolean[] removed = new boolean[1];
+        activeTicketByPlate.computeIfPresent(key, (k, t) -> {
+            if (t != ticket)
+                return t;
+            // 3. Cập nhật giờ ra cho vé
+            ticket.setExitTime(exitTime);
+            if (journal != null)
+                journal.retrieved(ticket);
+            removed[0] = true;
+            return null;
+        });
+        if (!removed[0])
+            return GateResult.Status.NOT_PARKED;
+
+        // 4. Cập nhật chỉ mục: vé chuyển từ active sang đã dùng
+        spotByPlate.remove(key, spot);
+        activeTicketById.remove(ticket.getTicketID());
+        usedTicketByPlate.putIfAbsent(key, ticket);
+        trackClosedTicket(ticket);
+
+        // 5. Giải phóng chỗ đỗ, trả bit trống sau cùng để cổng khác chỉ thấy
+        // chỗ trống khi trạng thái chỗ đã được dọn xong (và bản ghi xe ra đứng
+        // trước bản ghi của xe khác vào chỗ này)
         spot.setOccupied(false);
         spot.setLicensePlate(null);
+        spotsDirty = true;
+        freeSpots.get(spot.getAllowedType()).release(spot.getSpotID());
+        return GateResult.Status.RETRIEVED;
+    }
 
-        return true;
+    // Ghi nhận vé mới chưa lưu (gọi khi đang giữ khóa ghi historyLock)
+    private void trackNewTicket(Ticket ticket) {
+        if (ticketsRewrite)
+            return;
+        if (newTickets.size() < MAX_PENDING_TICKETS)
+            newTickets.add(ticket);
+        else
+            ticketsRewrite = true;
+    }
+
+    // Ghi nhận vé vừa đóng chưa lưu (cổng ra gọi song song với nhau)
+    private void trackClosedTicket(Ticket ticket) {
+        if (ticketsRewrite)
+            return;
+        if (closedTicketCount.incrementAndGet() <= MAX_PENDING_TICKETS)
+            closedTickets.add(ticket);
+        else
+            ticketsRewrite = true;
+    }
+
+    /*
+     * Xử lý một loạt lượt vào/ra theo đúng thứ tự (vd: cổng phát lại hàng đợi
+     * biển số sau khi mất kết nối), trả về kết quả tương ứng từng lượt.
+     * Cả loạt chỉ lấy khóa một lần, đọc đồng hồ một lần (cho các lượt không
+     * mang thời điểm riêng) và ghi lịch sử vé một lần, thay vì lặp lại cho mỗi
+     * lượt như khi gọi parkVehicleAuto/retrieveVehicle riêng lẻ. Khi nhật ký ép
+     * ghi xuống đĩa, chỉ chờ một lần cho cả loạt.
+     */
+    public ArrayList<GateResult> processGateEvents(List<GateEvent> events) {
+        ArrayList<GateResult> results = new ArrayList<>(events.size());
+        if (events.isEmpty())
+            return results;
+        LocalDateTime now = LocalDateTime.now(clock);
+        ArrayList<Ticket> created = new ArrayList<>();
+
+        registryLock.readLock().lock();
+        readLockAllSpotTypes();
+        try {
+            for (GateEvent event : events) {
+                String licensePlate = event.getLicensePlate();
+                LocalDateTime time = event.getTime() != null ? event.getTime() : now;
+                GateResult.Status status;
+                Ticket ticket = null;
+                if (licensePlate == null || licensePlate.isBlank()) {
+                    status = GateResult.Status.INVALID_PLATE;
+                } else if (event.getKind() == GateEvent.Kind.ENTRY) {
+                    String plate = licensePlate.trim();
+                    String key = normalizePlate(plate);
+                    Vehicle v = vehicleByPlate.get(key);
+                    if (v == null) {
+                        status = GateResult.Status.NOT_REGISTERED;
+                    } else {
+                        int before = created.size();
+                        status = parkLocked(key, plate, v, time, created);
+                        if (created.size() > before)
+                            ticket = created.get(before);
+                    }
+                } else {
+                    String key = normalizePlate(licensePlate);
+                    ticket = activeTicketByPlate.get(key);
+                    ParkingSpot spot = ticket == null ? null : getSpotBySpotID(ticket.getSpotID());
+                    status = spot == null ? GateResult.Status.NOT_PARKED
+                            : retrieveLocked(key, ticket, spot, time);
+                    if (status != GateResult.Status.RETRIEVED)
+                        ticket = null;
+                }
+                results.add(new GateResult(event, status, ticket));
+            }
+            appendHistory(created);
+        } finally {
+            readUnlockAllSpotTypes();
+            registryLock.readLock().unlock();
+        }
+        awaitJournal();
+        return results;
+    }
+
+    // Ảnh chụp lịch sử vé trong bộ nhớ để ghi file (sau lịch sử chưa nạp, xem
+    // DataManager.saveTickets): tầng lạnh rồi tầng nóng. Tầng lạnh chỉ thêm vào
+    // cuối nên chụp bằng mảng, vé tầng lạnh được tạo lại từng cái trong lúc
+    // ghi; tầng nóng (ít vé) được sao chép vì giờ ra còn thay đổi.
+    // Gọi khi đang giữ historyLock, duyệt được sau khi đã nhả khóa.
+    private Iterable<Ticket> snapshotTickets() {
+        Iterable<Ticket> coldSnapshot = coldTickets.snapshot();
+        ArrayList<Ticket> hotSnapshot = copyTickets(tickets);
+        return () -> new Iterator<Ticket>() {
+            private final Iterator<Ticket> cold = coldSnapshot.iterator();
+            private final Iterator<Ticket> hot = hotSnapshot.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return cold.hasNext() || hot.hasNext();
+            }
+
+            @Override
+            public Ticket next() {
+                return cold.hasNext() ? cold.next() : hot.next();
+            }
+        };
+    }
+
+    // Bản sao các vé tại thời điểm gọi (giờ ra không đổi theo vé gốc)
+    private static ArrayList<Ticket> copyTickets(Collection<Ticket> source) {
+        ArrayList<Ticket> copy = new ArrayList<>(source.size());
+        for (Ticket t : source) {
+            copy.add(new Ticket(t.getTicketID(), t.getSpotID(), t.getLicensePlate(), t.getEntryTime(),
+                    t.getExitTime()));
+        }
+        return copy;
     }
 
     // Các method reset
     public void resetVehicles() {
-        vehicles.clear();
+        registryLock.writeLock().lock();
+        try {
+            vehicles.clear();
+            vehicleByPlate.clear();
+            ownerIndex.clear();
+            vehiclesDirty = true;
+            if (journal != null)
+                journal.reset("VEHICLES");
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+        awaitJournal();
     }
 
+    // Không đặt lại lastTicketID để vé mới sau khi reset không trùng mã vé cũ
     public void resetTickets() {
-        tickets.clear();
+        lockAllSpotTypes();
+        historyLock.writeLock().lock();
+        try {
+            tickets.clear();
+            ticketById.clear();
+            ticketIdBase = 0;
+            hotTicketsByPlate.clear();
+            coldTickets.clear();
+            history = TicketHistory.EMPTY;
+            activeTicketByPlate.clear();
+            activeTicketById.clear();
+            usedTicketByPlate.clear();
+            ticketsRewrite = true;
+            if (journal != null)
+                journal.reset("TICKETS");
+        } finally {
+            historyLock.writeLock().unlock();
+            unlockAllSpotTypes();
+        }
+        awaitJournal();
     }
 
     public void resetSpots() {
-        spots.clear();
+        lockAllSpotTypes();
+        spotTableLock.writeLock().lock();
+        try {
+            spots.clear();
+            spotByPlate.clear();
+            spotById = new ParkingSpot[16];
+            maxSpotID = 0;
+            for (SpotPool pool : freeSpots.values()) {
+                pool.clear();
+            }
+            for (int t = 0; t < spotCountByType.length(); t++) {
+                spotCountByType.set(t, 0);
+            }
+            spotsDirty = true;
+            if (journal != null)
+                journal.reset("SPOTS");
+        } finally {
+            spotTableLock.writeLock().unlock();
+            unlockAllSpotTypes();
+        }
+        awaitJournal();
     }
 
-    // Lưu tất cả dữ liệu lại (Dùng khi tắt app)
+    /*
+     * Lưu tất cả dữ liệu lại (khi tắt app và lưu định kỳ, xem SnapshotScheduler).
+     * Hai bước:
+     * 1. Chụp ảnh: giữ toàn bộ khóa trong thời gian ngắn để sao chép phần đã
+     * thay đổi kể từ lần lưu trước (3 file nhất quán với nhau: chỗ đỗ có xe luôn
+     * khớp với vé đang hoạt động) và tách nhật ký tại đúng thời điểm đó.
+     * 2. Ghi ảnh chụp ra file sau khi đã nhả khóa, các cổng vào/ra vẫn chạy bình
+     * thường. File được ghi an toàn (file tạm + fsync + đổi tên, xem DataManager).
+     * Phần nhật ký trước ảnh chụp chỉ bị xóa khi đã ghi xong; tắt máy giữa chừng
+     * thì lần nạp sau áp dụng lại nhật ký, các bản ghi đã có bị bỏ qua.
+     * Chỉ ghi phần đã thay đổi nên lưu thường xuyên vẫn rẻ. Các lần lưu chạy lần
+     * lượt (saveLock).
+     */
     public void saveAllData() throws IOException {
-        dataManager.saveData(vehicles, spots, tickets);
+        saveLock.lock();
+        try {
+            ArrayList<Vehicle> vehicleSnapshot = null;
+            ArrayList<ParkingSpot> spotSnapshot = null;
+            Iterable<Ticket> ticketSnapshot = null;
+            TicketHistory historySnapshot = null;
+            // Vé đã đóng trước tháng hiện tại được cuộn ra phân đoạn tháng khi ghi
+            // lại file vé (xem DataManager.saveTickets), rồi được bỏ khỏi bộ nhớ:
+            // số vé tầng lạnh lúc chụp (tầng lạnh chỉ thêm vào cuối) và các vé
+            // tầng nóng đã đóng trước rollBefore lúc chụp
+            YearMonth openMonth = YearMonth.now(clock);
+            LocalDateTime rollBefore = openMonth.atDay(1).atStartOfDay();
+            int coldSnapshotSize = 0;
+            ArrayList<Ticket> rolledHot = null;
+            ArrayList<Ticket> addedSnapshot = null;
+            ArrayList<Ticket> closedSnapshot = null;
+            int lastID;
+
+            long begin = System.nanoTime();
+            registryLock.readLock().lock();
+            lockAllSpotTypes();
+            spotTableLock.readLock().lock();
+            historyLock.readLock().lock();
+            try {
+                // Các thay đổi từ đây về sau ghi vào phần nhật ký mới
+                journal.rotate();
+                if (vehiclesDirty)
+                    vehicleSnapshot = new ArrayList<>(vehicles); // Vehicle không đổi sau khi tạo
+                if (spotsDirty) {
+                    spotSnapshot = new ArrayList<>(spots.size());
+                    for (ParkingSpot spot : spots) {
+                        spotSnapshot.add(new ParkingSpot(spot.getSpotID(), spot.getAllowedType(),
+                                spot.getLicensePlate(), spot.isOccupied()));
+                    }
+                }
+                ArrayList<Ticket> closed = new ArrayList<>(closedTickets);
+                if (ticketsRewrite || dataManager.hasTicketsToRoll(openMonth)
+                        || !dataManager.canAppendTickets(newTickets, closed)) {
+                    ticketSnapshot = snapshotTickets();
+                    historySnapshot = history;
+                    coldSnapshotSize = coldTickets.size();
+                    rolledHot = new ArrayList<>();
+                    for (Ticket ticket : tickets) {
+                        if (ticket.getExitTime() != null && ticket.getExitTime().isBefore(rollBefore))
+                            rolledHot.add(ticket);
+                    }
+                } else {
+                    addedSnapshot = copyTickets(newTickets);
+                    closedSnapshot = copyTickets(closed);
+                }
+                vehiclesDirty = false;
+                spotsDirty = false;
+                ticketsRewrite = false;
+                newTickets = new ArrayList<>();
+                closedTickets.clear();
+                closedTicketCount.set(0);
+                lastID = lastTicketID.get();
+            } finally {
+                historyLock.readLock().unlock();
+                spotTableLock.readLock().unlock();
+                unlockAllSpotTypes();
+                registryLock.readLock().unlock();
+            }
+            lastSavePauseNanos = System.nanoTime() - begin;
+
+            try {
+                if (vehicleSnapshot != null)
+                    dataManager.saveVehicles(vehicleSnapshot);
+                if (spotSnapshot != null)
+                    dataManager.saveSpots(spotSnapshot);
+                if (ticketSnapshot != null) {
+                    TicketHistory written = dataManager.saveTickets(historySnapshot, ticketSnapshot, openMonth);
+                    adoptRewrittenHistory(historySnapshot, written, coldSnapshotSize, rolledHot, rollBefore);
+                } else
+                    dataManager.appendTickets(addedSnapshot, closedSnapshot);
+                dataManager.saveLastTicketID(lastID);
+            } catch (IOException | RuntimeException e) {
+                // Lần sau ghi lại các file này từ trạng thái lúc đó
+                if (vehicleSnapshot != null)
+                    vehiclesDirty = true;
+                if (spotSnapshot != null)
+                    spotsDirty = true;
+                ticketsRewrite = true;
+                throw e;
+            }
+            journal.dropRotated();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /*
+     * File vé vừa được ghi lại từ ảnh chụp snapshot: dùng lịch sử mới written
+     * (gồm cả các phân đoạn tháng vừa cuộn) và bỏ khỏi bộ nhớ các vé đã nằm trong
+     * phân đoạn: vé có giờ ra trước rollBefore trong coldCount vé tầng lạnh đầu
+     * tiên, và các vé rolledHot của tầng nóng. Bản mô tả cũ cũng được nối tới
+     * written để không bao giờ trỏ vào vị trí của file vé đã bị thay. Bỏ qua nếu
+     * vé đã bị reset trong lúc ghi.
+     */
+    private void adoptRewrittenHistory(TicketHistory snapshot, TicketHistory written, int coldCount,
+            ArrayList<Ticket> rolledHot, LocalDateTime rollBefore) {
+        historyLock.writeLock().lock();
+        try {
+            if (history != snapshot)
+                return;
+            if (snapshot != TicketHistory.EMPTY)
+                snapshot.latest().replaceWith(written);
+            history = written;
+
+            ArrayList<Ticket> rolled = coldTickets.removeClosedBefore(coldCount, rollBefore);
+            if (!rolledHot.isEmpty()) {
+                Set<Ticket> drop = Collections.newSetFromMap(new IdentityHashMap<>());
+                drop.addAll(rolledHot);
+                ArrayList<Ticket> hot = new ArrayList<>(tickets.size());
+                for (Ticket ticket : tickets) {
+                    if (!drop.contains(ticket))
+                        hot.add(ticket);
+                }
+                replaceHotTickets(hot);
+                rolled.addAll(rolledHot);
+            }
+            forgetUsedTickets(rolled);
+        } finally {
+            historyLock.writeLock().unlock();
+        }
+    }
+
+    // Bỏ các vé đã rời tầng nóng (sang tầng lạnh hoặc phân đoạn trên đĩa) khỏi
+    // chỉ mục vé đã ra theo biển số, thay bằng vé đã ra khác của cùng biển số
+    // còn ở tầng nóng nếu có (gọi khi đang giữ khóa ghi historyLock)
+    private void forgetUsedTickets(ArrayList<Ticket> removed) {
+        HashSet<String> keys = new HashSet<>();
+        for (Ticket ticket : removed) {
+            if (ticket.getLicensePlate() == null)
+                continue;
+            String key = normalizePlate(ticket.getLicensePlate());
+            int id = ticket.getTicketID();
+            if (usedTicketByPlate.computeIfPresent(key, (k, t) -> t.getTicketID() == id ? null : t) == null)
+                keys.add(key);
+        }
+        if (keys.isEmpty())
+            return;
+        // Giữ vé đã ra gặp đầu tiên như khi nạp
+        for (String key : keys) {
+            ArrayList<Ticket> hot = hotTicketsByPlate.get(key);
+            if (hot == null)
+                continue;
+            for (Ticket ticket : hot) {
+                if (ticket.getExitTime() != null) {
+                    usedTicketByPlate.putIfAbsent(key, ticket);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Thời gian các cổng bị chặn trong lần lưu gần nhất (bước chụp ảnh), nano giây
+    public long getLastSavePauseNanos() {
+        return lastSavePauseNanos;
+    }
+
+    // Ép ghi nhật ký xuống đĩa sau mỗi thao tác (chịu được mất điện, chậm hơn)
+    public void setJournalSync(boolean sync) {
+        journal.setSync(sync);
+    }
+
+    // Khi nhật ký ép ghi xuống đĩa: chờ bản ghi của thao tác vừa xong (gọi sau
+    // khi đã nhả khóa để cổng khác không phải chờ theo)
+    private void awaitJournal() {
+        if (journal != null)
+            journal.awaitWritten();
+    }
+
+    // Lỗi ghi nhật ký chưa được khắc phục, null nếu nhật ký đang ghi bình
+    // thường. Khi có lỗi, các thay đổi từ đó chỉ còn trong bộ nhớ cho tới lần
+    // saveAllData thành công kế tiếp (sau đó lỗi được xóa).
+    public IOException getJournalFailure() {
+        return journal.getFailure();
+    }
+
+    // Số bản ghi nhật ký hỏng bị bỏ qua khi khởi động
+    public int getSkippedJournalRecords() {
+        return skippedJournalRecords;
+    }
+
+    // Số vé chưa ra bị bỏ qua khi khởi động vì cùng biển số đã có vé khác đang
+    // hoạt động. Các vé này vẫn nằm trong lịch sử nhưng không thể cho xe ra.
+    public int getDuplicateOpenTickets() {
+        return duplicateOpenTickets;
+    }
+
+    // Đóng file nhật ký (không lưu dữ liệu). Thao tác sau đó mở lại file khi cần.
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    /*
+     * Áp dụng lại nhật ký lên dữ liệu vừa nạp từ CSV (gọi trong constructor,
+     * chưa có luồng nào khác). Mọi bản ghi đều bỏ qua được nếu ảnh chụp đã chứa
+     * nó (xe đã có, mã chỗ đã có, mã vé đã có, vé đã đóng), nên áp dụng lại nhiều
+     * lần vẫn cho cùng kết quả. Dòng hỏng (ghi dở lúc tắt máy) bị bỏ qua.
+     */
+    private void replayJournal(ArrayList<String[]> records) {
+        int skipped = 0;
+        for (String[] r : records) {
+            try {
+                switch (r[0]) {
+                    case Journal.VEHICLE_ADDED:
+                        addVehicle(r[3], VehicleType.valueOf(r[1]), r[4], r[2]);
+                        break;
+                    case Journal.VEHICLE_REMOVED:
+                        removeVehicle(r[1]);
+                        break;
+                    case Journal.SPOTS_ADDED:
+                        replaySpots(VehicleType.valueOf(r[1]), Integer.parseInt(r[2]), Integer.parseInt(r[3]));
+                        break;
+                    case Journal.PARKED:
+                        replayPark(Integer.parseInt(r[1]), Integer.parseInt(r[2]), Journal.parseTime(r[3]), r[4]);
+                        break;
+                    case Journal.RETRIEVED:
+                        replayRetrieve(Integer.parseInt(r[1]), Journal.parseTime(r[2]), r[3]);
+                        break;
+                    case Journal.RESET:
+                        if (r[1].equals("VEHICLES"))
+                            resetVehicles();
+                        else if (r[1].equals("TICKETS"))
+                            resetTickets();
+                        else if (r[1].equals("SPOTS"))
+                            resetSpots();
+                        else
+                            skipped++;
+                        break;
+                    default:
+                        skipped++;
+                }
+            } catch (RuntimeException e) {
+                skipped++; // thiếu trường, sai số, sai định dạng giờ...
+            }
+        }
+        skippedJournalRecords = skipped;
+    }
+
+    // Thêm lại các chỗ firstSpotID .. firstSpotID + count - 1 còn thiếu
+    private void replaySpots(VehicleType type, int firstSpotID, int count) {
+        SpotPool pool = freeSpots.get(type);
+        for (int id = firstSpotID; id < firstSpotID + count; id++) {
+            if (id < 0 || getSpotBySpotID(id) != null)
+                continue;
+            ParkingSpot spot = new ParkingSpot(id, type, null, false);
+            spots.add(spot);
+            indexSpot(spot);
+            spotCountByType.incrementAndGet(type.ordinal());
+            pool.ensureCapacity(id);
+            pool.release(id);
+            spotsDirty = true;
+        }
+    }
+
+    private void replayPark(int ticketID, int spotID, LocalDateTime entryTime, String plate) {
+        if (getTicketByTicketID(ticketID) != null)
+            return; // vé đã có trong ảnh chụp
+        Ticket ticket = new Ticket(ticketID, spotID, plate, entryTime, null);
+        if (ticketID > lastTicketID.get())
+            lastTicketID.set(ticketID);
+        tickets.add(ticket);
+        indexTicketId(ticket);
+        indexHotTicket(ticket);
+        trackNewTicket(ticket);
+        String key = normalizePlate(plate);
+        if (activeTicketByPlate.putIfAbsent(key, ticket) != null) {
+            duplicateOpenTickets++; // dữ liệu lệch: xe đã có vé khác đang hoạt động
+            return;
+        }
+        activeTicketById.put(ticketID, ticket);
+        ParkingSpot spot = getSpotBySpotID(spotID);
+        if (spot != null && !spot.isOccupied()) {
+            spot.setOccupied(true);
+            spot.setLicensePlate(plate);
+            spotByPlate.put(key, spot);
+            spotsDirty = true;
+            if (spot.getAllowedType() != null)
+                freeSpots.get(spot.getAllowedType()).remove(spotID);
+        }
+    }
+
+    private void replayRetrieve(int ticketID, LocalDateTime exitTime, String plate) {
+        Ticket ticket = activeTicketById.get(ticketID);
+        if (ticket == null)
+            return; // vé đã đóng trong ảnh chụp (hoặc đã bị reset)
+        String key = normalizePlate(plate);
+        ParkingSpot spot = getSpotBySpotID(ticket.getSpotID());
+        if (spot != null && spot.getAllowedType() != null) {
+            retrieveLocked(key, ticket, spot, exitTime);
+            return;
+        }
+        // Vé trỏ tới chỗ không còn tồn tại: chỉ đóng vé
+        activeTicketByPlate.remove(key, ticket);
+        activeTicketById.remove(ticketID);
+        ticket.setExitTime(exitTime);
+        usedTicketByPlate.putIfAbsent(key, ticket);
+        trackClosedTicket(ticket);
     }
 }
@@ -3,8 +3,8 @@ package logic;
 public class ParkingSpot {
     private final int spotID;
     private final VehicleType allowedType;
-    private String licensePlate;
-    private boolean occupied;
+    private volatile String licensePlate;
+    private volatile boolean occupied;
 
     public ParkingSpot(int spotID, VehicleType allowedType, String licensePlate, boolean occupied) {
         this.spotID = spotID;
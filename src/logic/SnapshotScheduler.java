@@ -0,0 +1,170 @@
+package logic;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu ảnh chụp ParkingLot định kỳ ở luồng nền (xem ParkingLot.saveAllData:
+ * các cổng chỉ bị chặn trong lúc chụp ảnh, không phải trong lúc ghi file).
+ * Trước mỗi lần lưu định kỳ, vé cũ được chuyển sang tầng lạnh để bộ nhớ không
+ * tăng mãi. Ghi lại số liệu các lần lưu: số lần, thời gian lưu, thời gian các
+ * cổng bị chặn, số lần lỗi.
+ */
+public class SnapshotScheduler {
+    private final ParkingLot parkingLot;
+    private long intervalSeconds;
+    private ScheduledExecutorService executor;
+
+    // Số liệu các lần lưu (đọc/ghi dưới khóa của đối tượng)
+    private long saveCount;
+    private long failureCount;
+    private long lastSaveNanos;
+    private long maxSaveNanos;
+    private long totalSaveNanos;
+    private long lastPauseNanos;
+    private long maxPauseNanos;
+    private String lastError;
+
+    // intervalSeconds <= 0: không lưu định kỳ, chỉ lưu khi gọi saveNow
+    public SnapshotScheduler(ParkingLot parkingLot, long intervalSeconds) {
+        this.parkingLot = parkingLot;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    // Bắt đầu lưu định kỳ ở luồng nền (luồng daemon, không giữ tiến trình sống)
+    public synchronized void start() {
+        if (executor != null || intervalSeconds <= 0)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "parking-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::saveQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Dừng lưu định kỳ, chờ lần lưu đang chạy (nếu có) kết thúc
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running == null)
+            return;
+        running.shutdown();
+        try {
+            running.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Đổi chu kỳ lưu, áp dụng ngay nếu đang chạy
+    public void setIntervalSeconds(long intervalSeconds) {
+        boolean running;
+        synchronized (this) {
+            this.intervalSeconds = intervalSeconds;
+            running = executor != null;
+        }
+        if (running) {
+            stop();
+            start();
+        }
+    }
+
+    public synchronized long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    // Lưu ngay (vd: lệnh lưu, lúc tắt), có tính vào số liệu
+    public void saveNow() throws IOException {
+        long begin = System.nanoTime();
+        try {
+            parkingLot.saveAllData();
+        } catch (IOException | RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - begin;
+        long pause = parkingLot.getLastSavePauseNanos();
+        synchronized (this) {
+            saveCount++;
+            lastSaveNanos = elapsed;
+            maxSaveNanos = Math.max(maxSaveNanos, elapsed);
+            totalSaveNanos += elapsed;
+            lastPauseNanos = pause;
+            maxPauseNanos = Math.max(maxPauseNanos, pause);
+        }
+    }
+
+    // Lỗi lưu định kỳ không được làm chết luồng lưu, lần sau sẽ thử lại. Lỗi
+    // được ghi vào failureCount/lastError để giao diện báo cho người dùng.
+    private void saveQuietly() {
+        try {
+            parkingLot.archiveColdTickets();
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            return;
+        }
+        try {
+            saveNow();
+        } catch (IOException | RuntimeException e) {
+            // saveNow đã ghi nhận lỗi
+        }
+    }
+
+    // Ghi nhận một lần lưu lỗi (cả lỗi của các bước khác khi dừng, xem ParkingEngine.stop)
+    synchronized void recordFailure(Exception e) {
+        failureCount++;
+        lastError = e.getMessage();
+    }
+
+    public synchronized long getSaveCount() {
+        return saveCount;
+    }
+
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    // Thời gian lưu (chụp ảnh + ghi file) của lần gần nhất / lâu nhất / trung bình, mili giây
+    public synchronized double getLastSaveMillis() {
+        return lastSaveNanos / 1e6;
+    }
+
+    public synchronized double getMaxSaveMillis() {
+        return maxSaveNanos / 1e6;
+    }
+
+    public synchronized double getAverageSaveMillis() {
+        return saveCount == 0 ? 0 : totalSaveNanos / 1e6 / saveCount;
+    }
+
+    // Thời gian các cổng bị chặn (bước chụp ảnh) của lần gần nhất / lâu nhất, mili giây
+    public synchronized double getLastPauseMillis() {
+        return lastPauseNanos / 1e6;
+    }
+
+    public synchronized double getMaxPauseMillis() {
+        return maxPauseNanos / 1e6;
+    }
+
+    // Thông báo lỗi của lần lưu lỗi gần nhất, null nếu chưa lỗi lần nào
+    public synchronized String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d lần lưu (%d lỗi), lần cuối %.1f ms (chặn cổng %.2f ms), trung bình %.1f ms,"
+                + " lâu nhất %.1f ms (chặn cổng %.2f ms)", saveCount, failureCount, getLastSaveMillis(),
+                getLastPauseMillis(), getAverageSaveMillis(), getMaxSaveMillis(), getMaxPauseMillis());
+    }
+}
@@ -0,0 +1,117 @@
+package logic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tập các chỗ đỗ còn trống của MỘT loại xe, đánh dấu theo mã chỗ (bit i = chỗ
+ * có mã i đang trống).
+ * Dùng bitmap 2 tầng: mỗi bit của summary cho biết một word 64 bit bên dưới có
+ * thể còn chỗ trống, nên việc cấp chỗ có mã nhỏ nhất chỉ cần vài phép
+ * numberOfTrailingZeros thay vì duyệt toàn bộ danh sách chỗ đỗ.
+ *
+ * claim/release không khóa: bit được chiếm/trả bằng compare-and-set, nhiều cổng
+ * tranh nhau chỗ trống cuối cùng thì chỉ đúng một cổng thắng, các cổng khác
+ * không bị chặn. ensureCapacity/clear thay đổi cấu trúc nên ParkingLot chỉ gọi
+ * khi đang giữ khóa ghi của loại xe (claim/release chạy dưới khóa đọc).
+ */
+class SpotPool {
+    private AtomicLongArray words = new AtomicLongArray(1); // bit trống theo mã chỗ
+    // bit j = 1 nếu words[j] có thể khác 0 (chỉ là gợi ý, xem claim)
+    private AtomicLongArray summary = new AtomicLongArray(1);
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    // Đánh dấu chỗ là trống (khi thêm chỗ mới hoặc khi xe rời đi).
+    // Chỗ vượt quá dung lượng phải được mở rộng trước bằng ensureCapacity.
+    void release(int spotID) {
+        if (spotID < 0)
+            return;
+        int w = spotID >>> 6;
+        long bit = 1L << spotID;
+        long old = words.getAndUpdate(w, x -> x | bit);
+        if ((old & bit) != 0)
+            return; // đã trống sẵn
+        freeCount.incrementAndGet();
+        // Bật bit summary SAU khi bật bit chỗ trống (xem claim)
+        long sBit = 1L << w;
+        summary.getAndUpdate(w >>> 6, x -> x | sBit);
+    }
+
+    // Lấy chỗ trống có mã nhỏ nhất và đánh dấu là đã dùng, -1 nếu hết chỗ
+    int claim() {
+        while (freeCount.get() > 0) {
+            boolean sawCandidate = false;
+            for (int s = 0; s < summary.length(); s++) {
+                long sWord = summary.get(s);
+                while (sWord != 0) {
+                    int w = (s << 6) + Long.numberOfTrailingZeros(sWord);
+                    sWord &= sWord - 1;
+                    long x = words.get(w);
+                    while (x != 0) {
+                        sawCandidate = true;
+                        long bit = Long.lowestOneBit(x);
+                        if (words.compareAndSet(w, x, x & ~bit)) {
+                            freeCount.decrementAndGet();
+                            return (w << 6) + Long.numberOfTrailingZeros(bit);
+                        }
+                        x = words.get(w); // thua CAS: đọc lại và thử bit kế tiếp
+                    }
+                    clearSummaryIfEmpty(w);
+                }
+            }
+            if (!sawCandidate)
+                return -1; // freeCount chưa kịp cập nhật, coi như hết chỗ
+        }
+        return -1;
+    }
+
+    // Tắt bit summary của word rỗng. Sau khi tắt phải kiểm tra lại: nếu có cổng
+    // vừa trả chỗ vào word này thì bật lại, để chỗ trống không bao giờ bị "ẩn".
+    private void clearSummaryIfEmpty(int w) {
+        long sBit = 1L << w;
+        summary.getAndUpdate(w >>> 6, x -> x & ~sBit);
+        if (words.get(w) != 0)
+            summary.getAndUpdate(w >>> 6, x -> x | sBit);
+    }
+
+    // Bỏ một chỗ khỏi tập trống (nếu có)
+    void remove(int spotID) {
+        if (spotID < 0)
+            return;
+        int w = spotID >>> 6;
+        if (w >= words.length())
+            return;
+        long bit = 1L << spotID;
+        long old = words.getAndUpdate(w, x -> x & ~bit);
+        if ((old & bit) != 0)
+            freeCount.decrementAndGet();
+    }
+
+    int size() {
+        return freeCount.get();
+    }
+
+    void clear() {
+        words = new AtomicLongArray(1);
+        summary = new AtomicLongArray(1);
+        freeCount.set(0);
+    }
+
+    // Mở rộng mảng (gấp đôi) để chứa được chỗ có mã spotID
+    void ensureCapacity(int spotID) {
+        int w = spotID >>> 6;
+        if (w < words.length())
+            return;
+        int newLength = words.length();
+        while (newLength <= w)
+            newLength <<= 1;
+        AtomicLongArray newWords = new AtomicLongArray(newLength);
+        for (int i = 0; i < words.length(); i++)
+            newWords.set(i, words.get(i));
+        AtomicLongArray newSummary = new AtomicLongArray((newLength + 63) >>> 6);
+        for (int i = 0; i < summary.length(); i++)
+            newSummary.set(i, summary.get(i));
+        words = newWords;
+        summary = newSummary;
+    }
+}
@@ -7,7 +7,7 @@ public class Ticket {
     private final int spotID;
     private final String licensePlate;
     private final LocalDateTime entryTime;
-    private LocalDateTime exitTime;
+    private volatile LocalDateTime exitTime;
 
     public Ticket(int ticketID, int spotID, String licensePlate, LocalDateTime entryTime, LocalDateTime exitTime) {
         this.ticketID = ticketID;
@@ -43,7 +43,10 @@ public class Ticket {
 
     @Override
     public String toString() {
-        return ticketID + "," + spotID + "," + licensePlate + "," + entryTime + "," + exitTime;
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(ticketID).append(',').append(spotID).append(',').append(licensePlate).append(',');
+        TimestampCodec.append(sb, entryTime).append(',');
+        return TimestampCodec.append(sb, exitTime).toString();
     }
 
 }
@@ -0,0 +1,266 @@
+package logic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lịch sử vé còn nằm trên đĩa, không được nạp vào bộ nhớ: các phân đoạn tháng
+ * (TicketSegment) rồi các vé có trong file vé lúc khởi động trừ vé chưa ra. Vé
+ * trong file vé được đọc lại theo từng trang của TicketIndex khi có người cần
+ * tới (xem lịch sử, tìm kiếm), vài trang đọc gần nhất được giữ lại trong bộ
+ * nhớ; phân đoạn được giải nén khi cần và bị bỏ qua nếu khoảng mã vé/thời gian
+ * ở phần đầu không khớp với điều kiện tìm. Nội dung không bao giờ đổi (chỉ bị
+ * thay cả khối khi reset), nên chi phí khởi động và bộ nhớ không tăng theo số
+ * năm vận hành.
+ *
+ * Khi DataManager ghi lại toàn bộ file vé, các vé trong file vé được chép lên
+ * đầu file mới (cùng thứ tự) hoặc cuộn ra phân đoạn tháng mới, và lịch sử này
+ * được nối tới bản mô tả mới (successor). Việc đổi file và nối diễn ra dưới
+ * khóa ghi fileLock, mọi lần đọc giữ khóa đọc và luôn đọc theo bản mới nhất,
+ * nên không bao giờ đọc vị trí cũ trên file mới.
+ *
+ * An toàn khi nhiều luồng đọc cùng lúc. Lỗi đọc file được ném ra dưới dạng
+ * UncheckedIOException.
+ */
+class TicketHistory {
+    // Đọc các vé của đoạn [from, to) trong file vé, bỏ dòng bắt đầu tại vị trí thuộc skip
+    interface PageReader {
+        ArrayList<Ticket> read(long from, long to, long[] skip) throws IOException;
+    }
+
+    // Lịch sử rỗng (chưa nạp, sau reset)
+    static final TicketHistory EMPTY = new TicketHistory(null, new ReentrantReadWriteLock(), new TicketSegment[0],
+            new long[0], new int[0], new int[0], 0, new long[0], 0);
+    // Số trang đọc gần nhất được giữ lại
+    private static final int CACHED_PAGES = 8;
+
+    private final PageReader reader;
+    private final ReentrantReadWriteLock fileLock;
+    private final TicketSegment[] segments;
+    private final long[] pageStarts;
+    private final int[] pageMinIds;
+    private final int[] pageMaxIds;
+    private final long end;
+    private final long[] skip;
+    private final int rows;
+    private final int size;
+    private volatile TicketHistory successor;
+    private final LinkedHashMap<Integer, ArrayList<Ticket>> cache = new LinkedHashMap<Integer, ArrayList<Ticket>>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ArrayList<Ticket>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    // rows là số vé trong phần file vé (các trang)
+    TicketHistory(PageReader reader, ReentrantReadWriteLock fileLock, TicketSegment[] segments, long[] pageStarts,
+            int[] pageMinIds, int[] pageMaxIds, long end, long[] skip, int rows) {
+        this.reader = reader;
+        this.fileLock = fileLock;
+        this.segments = segments;
+        this.pageStarts = pageStarts;
+        this.pageMinIds = pageMinIds;
+        this.pageMaxIds = pageMaxIds;
+        this.end = end;
+        this.skip = skip;
+        this.rows = rows;
+        long size = rows;
+        for (TicketSegment segment : segments)
+            size += segment.getRows();
+        this.size = (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    // Số vé
+    int size() {
+        return size;
+    }
+
+    // Mã vé lớn nhất (0 nếu rỗng), để bộ sinh mã vé không cấp lại mã cũ
+    int maxTicketID() {
+        int max = 0;
+        for (TicketSegment segment : segments)
+            max = Math.max(max, segment.getMaxId());
+        for (int id : pageMaxIds)
+            max = Math.max(max, id);
+        return max;
+    }
+
+    // Các phân đoạn tháng của lịch sử này
+    TicketSegment[] segments() {
+        return segments.clone();
+    }
+
+    // Cùng phần file vé, các phân đoạn thay bằng segments
+    TicketHistory withSegments(TicketSegment[] segments) {
+        return new TicketHistory(reader, fileLock, segments, pageStarts, pageMinIds, pageMaxIds, end, skip, rows);
+    }
+
+    // Bản mô tả file vé hiện tại của cùng các vé này
+    TicketHistory latest() {
+        TicketHistory current = this;
+        while (current.successor != null)
+            current = current.successor;
+        return current;
+    }
+
+    // File vé đã được ghi lại, next mô tả cùng các vé trên file mới. Gọi dưới
+    // khóa ghi fileLock, ngay sau khi đổi file.
+    void replaceWith(TicketHistory next) {
+        successor = next;
+    }
+
+    // Duyệt mọi vé theo thứ tự lịch sử: các phân đoạn rồi các trang của file vé
+    void forEach(Consumer<? super Ticket> action) {
+        forEach(null, null, action);
+    }
+
+    // Duyệt các vé có thể có mặt trong bãi trong khoảng [from, to) (null là
+    // không giới hạn): bỏ qua phân đoạn có khoảng thời gian không giao với khoảng
+    // này, các vé còn lại vẫn cần lọc lại theo giờ vào/ra
+    private void forEach(LocalDateTime from, LocalDateTime to, Consumer<? super Ticket> action) {
+        fileLock.readLock().lock();
+        try {
+            TicketHistory current = latest();
+            for (TicketSegment segment : current.segments) {
+                if (segment.overlaps(from, to))
+                    segment.forEach(action);
+            }
+            current.forEachPage(action);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    // Chỉ duyệt các vé trong file vé (không gồm phân đoạn), để chép sang file vé mới
+    void forEachInTicketFile(Consumer<? super Ticket> action) {
+        fileLock.readLock().lock();
+        try {
+            latest().forEachPage(action);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    private void forEachPage(Consumer<? super Ticket> action) {
+        for (int page = 0; page < pageStarts.length; page++) {
+            for (Ticket ticket : page(page))
+                action.accept(ticket);
+        }
+    }
+
+    // Các vé thỏa filter, theo thứ tự lịch sử
+    ArrayList<Ticket> find(Predicate<? super Ticket> filter) {
+        return find(null, null, filter);
+    }
+
+    // Các vé có mặt trong bãi trong khoảng [from, to) (vào trước to, chưa ra hoặc
+    // ra từ from trở đi) và thỏa filter, chỉ giải nén các phân đoạn có thể chứa chúng
+    ArrayList<Ticket> find(LocalDateTime from, LocalDateTime to, Predicate<? super Ticket> filter) {
+        ArrayList<Ticket> result = new ArrayList<>();
+        forEach(from, to, ticket -> {
+            if (isPresent(ticket, from, to) && filter.test(ticket))
+                result.add(ticket);
+        });
+        return result;
+    }
+
+    // Vé có mặt trong bãi trong khoảng [from, to) không (null là không giới hạn)
+    static boolean isPresent(Ticket ticket, LocalDateTime from, LocalDateTime to) {
+        if (to != null && (ticket.getEntryTime() == null || !ticket.getEntryTime().isBefore(to)))
+            return false;
+        return from == null || ticket.getExitTime() == null || !ticket.getExitTime().isBefore(from);
+    }
+
+    // Đưa các vé của lịch sử vào trang page. Các phân đoạn và trang của file vé
+    // được xét theo mã lớn nhất giảm dần, chỉ đọc những nguồn có khoảng mã còn
+    // vào được trang: trang đầu tiên chỉ đọc phần mới nhất của lịch sử.
+    void collect(TicketPage page) {
+        fileLock.readLock().lock();
+        try {
+            TicketHistory current = latest();
+            int segmentCount = current.segments.length;
+            Integer[] sources = new Integer[segmentCount + current.pageStarts.length];
+            for (int i = 0; i < sources.length; i++)
+                sources[i] = i;
+            Arrays.sort(sources, Comparator.comparingInt((Integer i) -> i < segmentCount
+                    ? current.segments[i].getMaxId() : current.pageMaxIds[i - segmentCount]).reversed());
+            for (int source : sources) {
+                if (source < segmentCount) {
+                    TicketSegment segment = current.segments[source];
+                    if (page.acceptsRange(segment.getMinId(), segment.getMaxId()))
+                        segment.forEach(page::offer);
+                } else {
+                    int index = source - segmentCount;
+                    if (page.acceptsRange(current.pageMinIds[index], current.pageMaxIds[index])) {
+                        for (Ticket ticket : current.page(index))
+                            page.offer(ticket);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    // Vé đầu tiên có mã ticketID, null nếu không có. Chỉ giải nén các phân đoạn
+    // và đọc các trang có khoảng mã chứa ticketID (mã tăng dần theo file thì
+    // chỉ một trang).
+    Ticket findById(int ticketID) {
+        fileLock.readLock().lock();
+        try {
+            TicketHistory current = latest();
+            for (TicketSegment segment : current.segments) {
+                Ticket ticket = segment.findById(ticketID);
+                if (ticket != null)
+                    return ticket;
+            }
+            for (int page = 0; page < current.pageStarts.length; page++) {
+                if (ticketID < current.pageMinIds[page] || ticketID > current.pageMaxIds[page])
+                    continue;
+                for (Ticket ticket : current.page(page)) {
+                    if (ticket.getTicketID() == ticketID)
+                        return ticket;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    // Các vé của một trang, đọc từ file nếu chưa có sẵn. Gọi khi đang giữ khóa đọc.
+    private ArrayList<Ticket> page(int page) {
+        synchronized (cache) {
+            ArrayList<Ticket> tickets = cache.get(page);
+            if (tickets != null)
+                return tickets;
+        }
+        long to = page + 1 < pageStarts.length ? pageStarts[page + 1] : end;
+        ArrayList<Ticket> tickets;
+        try {
+            tickets = reader.read(pageStarts[page], to, skip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (cache) {
+            cache.put(page, tickets);
+        }
+        return tickets;
+    }
+}
@@ -0,0 +1,222 @@
+package logic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục vị trí dòng của file vé (CSV hoặc nhị phân), để khi khởi động chỉ
+ * cần đọc các vé chưa ra, lịch sử vé đã đóng được đọc dần theo trang khi cần
+ * (xem TicketHistory).
+ *
+ * Các dòng được chia thành trang liên tiếp, mỗi trang tối đa PAGE_ROWS dòng:
+ * trang giữ vị trí byte bắt đầu, số dòng, mã vé nhỏ nhất/lớn nhất (để tìm theo
+ * mã chỉ phải đọc các trang có thể chứa mã đó). Trang cuối kéo dài tới hết phần
+ * file được chỉ mục. Vé chưa ra được ghi riêng: mã vé -> vị trí đầu dòng và vị
+ * trí cột giờ ra (-1 nếu chưa biết, vd: chỉ mục dựng lại bằng cách quét file).
+ * Giờ ra sớm nhất của các vé đã đóng cho biết file còn vé của tháng trước cần
+ * cuộn ra phân đoạn tháng hay không (xem TicketSegment).
+ *
+ * DataManager dựng chỉ mục khi ghi lại toàn bộ file vé, cập nhật khi ghi tăng
+ * dần và lưu ra file bên cạnh (tickets.csv.idx / tickets.bin.idx) kèm độ dài và
+ * giờ sửa của file vé lúc đó. Chỉ mục không khớp với file (tắt máy giữa lúc
+ * ghi, file bị sửa tay...) bị bỏ qua và dựng lại bằng cách quét file một lần
+ * (file CSV lớn được quét song song theo khối rồi nối lại, xem append).
+ *
+ * Không tự đồng bộ: DataManager gọi lần lượt.
+ */
+class TicketIndex {
+    // Số dòng tối đa của một trang (khoảng 250 KB với file CSV)
+    static final int PAGE_ROWS = 4096;
+    private static final int MAGIC = 0x504B4931; // "PKI1"
+    private static final int VERSION = 2;
+
+    private int pageCount;
+    private long[] pageStarts = new long[16];
+    private int[] pageRows = new int[16];
+    private int[] pageMinIds = new int[16];
+    private int[] pageMaxIds = new int[16];
+    private long rowCount;
+    // Giờ ra sớm nhất (số giây, xem TimestampCodec) của các vé đã đóng trong file
+    private long oldestExit = Long.MAX_VALUE;
+    // Vé chưa ra theo thứ tự trong file: mã vé -> {vị trí đầu dòng, vị trí cột giờ ra}
+    private final LinkedHashMap<Integer, long[]> openRows = new LinkedHashMap<>();
+
+    // Thêm một dòng hợp lệ bắt đầu tại start (các dòng phải được thêm theo thứ
+    // tự trong file), exitTime null là vé chưa ra. Vé trùng mã chỉ dòng chưa ra
+    // đầu tiên được ghi nhận.
+    void addRow(long start, int ticketID, LocalDateTime exitTime, long exitOffset) {
+        if (pageCount == 0 || pageRows[pageCount - 1] == PAGE_ROWS) {
+            if (pageCount == pageStarts.length)
+                grow();
+            pageStarts[pageCount] = start;
+            pageMinIds[pageCount] = ticketID;
+            pageMaxIds[pageCount] = ticketID;
+            pageCount++;
+        }
+        int page = pageCount - 1;
+        pageRows[page]++;
+        pageMinIds[page] = Math.min(pageMinIds[page], ticketID);
+        pageMaxIds[page] = Math.max(pageMaxIds[page], ticketID);
+        rowCount++;
+        if (exitTime == null)
+            openRows.putIfAbsent(ticketID, new long[] { start, exitOffset });
+        else
+            oldestExit = Math.min(oldestExit, TimestampCodec.toEpochSecond(exitTime));
+    }
+
+    /*
+     * Nối chỉ mục của đoạn file ngay sau đoạn này (dựng song song, xem
+     * MappedTicketReader.index), trả về chính chỉ mục này. Trang cuối của đoạn
+     * này được gộp với trang đầu của đoạn sau nếu vẫn không quá PAGE_ROWS dòng.
+     */
+    TicketIndex append(TicketIndex next) {
+        int first = 0;
+        if (pageCount > 0 && next.pageCount > 0 && pageRows[pageCount - 1] + next.pageRows[0] <= PAGE_ROWS) {
+            int page = pageCount - 1;
+            pageRows[page] += next.pageRows[0];
+            pageMinIds[page] = Math.min(pageMinIds[page], next.pageMinIds[0]);
+            pageMaxIds[page] = Math.max(pageMaxIds[page], next.pageMaxIds[0]);
+            first = 1;
+        }
+        for (int i = first; i < next.pageCount; i++) {
+            if (pageCount == pageStarts.length)
+                grow();
+            pageStarts[pageCount] = next.pageStarts[i];
+            pageRows[pageCount] = next.pageRows[i];
+            pageMinIds[pageCount] = next.pageMinIds[i];
+            pageMaxIds[pageCount] = next.pageMaxIds[i];
+            pageCount++;
+        }
+        rowCount += next.rowCount;
+        oldestExit = Math.min(oldestExit, next.oldestExit);
+        for (Map.Entry<Integer, long[]> row : next.openRows.entrySet())
+            openRows.putIfAbsent(row.getKey(), row.getValue());
+        return this;
+    }
+
+    // {vị trí đầu dòng, vị trí cột giờ ra} của vé chưa ra, null nếu không có
+    long[] openRow(int ticketID) {
+        return openRows.get(ticketID);
+    }
+
+    // Vé đã được ghi giờ ra: bỏ khỏi tập chưa ra, trả về vị trí như openRow
+    long[] closeRow(int ticketID, LocalDateTime exitTime) {
+        oldestExit = Math.min(oldestExit, TimestampCodec.toEpochSecond(exitTime));
+        return openRows.remove(ticketID);
+    }
+
+    // File có vé đã đóng với giờ ra trước time không
+    boolean hasExitBefore(LocalDateTime time) {
+        return oldestExit < TimestampCodec.toEpochSecond(time);
+    }
+
+    // Mã vé và vị trí đầu dòng của các vé chưa ra, theo thứ tự trong file
+    int[] openRowIds() {
+        int[] ids = new int[openRows.size()];
+        int i = 0;
+        for (Integer id : openRows.keySet())
+            ids[i++] = id;
+        return ids;
+    }
+
+    long[] openRowStarts() {
+        long[] starts = new long[openRows.size()];
+        int i = 0;
+        for (long[] row : openRows.values())
+            starts[i++] = row[0];
+        return starts;
+    }
+
+    /*
+     * Lịch sử vé gồm các phân đoạn tháng segments rồi đoạn [đầu file, end) của
+     * file vé theo các trang hiện có, bỏ qua các dòng bắt đầu tại vị trí thuộc
+     * skip (vé đã nạp sẵn vào bộ nhớ). Các mảng được sao chép nên chỉ mục tiếp
+     * tục thay đổi được.
+     */
+    TicketHistory history(TicketHistory.PageReader reader, ReentrantReadWriteLock fileLock, TicketSegment[] segments,
+            long end, long[] skip) {
+        long[] sortedSkip = skip.clone();
+        Arrays.sort(sortedSkip);
+        return new TicketHistory(reader, fileLock, segments, Arrays.copyOf(pageStarts, pageCount),
+                Arrays.copyOf(pageMinIds, pageCount), Arrays.copyOf(pageMaxIds, pageCount), end, sortedSkip,
+                (int) Math.min(Integer.MAX_VALUE, rowCount - sortedSkip.length));
+    }
+
+    // Ghi chỉ mục, kèm độ dài và giờ sửa của file vé mà nó mô tả
+    void write(OutputStream out, long fileLength, long fileModified) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(fileLength);
+        data.writeLong(fileModified);
+        data.writeInt(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            data.writeLong(pageStarts[i]);
+            data.writeInt(pageRows[i]);
+            data.writeInt(pageMinIds[i]);
+            data.writeInt(pageMaxIds[i]);
+        }
+        data.writeLong(oldestExit);
+        data.writeInt(openRows.size());
+        for (Map.Entry<Integer, long[]> row : openRows.entrySet()) {
+            data.writeInt(row.getKey());
+            data.writeLong(row.getValue()[0]);
+            data.writeLong(row.getValue()[1]);
+        }
+        data.flush();
+    }
+
+    // Đọc chỉ mục đã lưu, null nếu chưa có, hỏng hoặc không khớp với file vé
+    // hiện tại (độ dài/giờ sửa khác)
+    static TicketIndex read(File file, long fileLength, long fileModified) {
+        if (!file.exists())
+            return null;
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION)
+                return null;
+            if (data.readLong() != fileLength || data.readLong() != fileModified)
+                return null;
+            TicketIndex index = new TicketIndex();
+            int pages = data.readInt();
+            if (pages < 0)
+                return null;
+            for (int i = 0; i < pages; i++) {
+                if (index.pageCount == index.pageStarts.length)
+                    index.grow();
+                index.pageStarts[i] = data.readLong();
+                index.pageRows[i] = data.readInt();
+                index.pageMinIds[i] = data.readInt();
+                index.pageMaxIds[i] = data.readInt();
+                index.rowCount += index.pageRows[i];
+                index.pageCount++;
+            }
+            index.oldestExit = data.readLong();
+            int open = data.readInt();
+            for (int i = 0; i < open; i++) {
+                int id = data.readInt();
+                index.openRows.put(id, new long[] { data.readLong(), data.readLong() });
+            }
+            return index;
+        } catch (IOException e) {
+            return null; // file ghi dở: quét lại file vé
+        }
+    }
+
+    private void grow() {
+        int capacity = pageStarts.length * 2;
+        pageStarts = Arrays.copyOf(pageStarts, capacity);
+        pageRows = Arrays.copyOf(pageRows, capacity);
+        pageMinIds = Arrays.copyOf(pageMinIds, capacity);
+        pageMaxIds = Arrays.copyOf(pageMaxIds, capacity);
+    }
+}
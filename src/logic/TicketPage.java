@@ -0,0 +1,57 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Gom một trang lịch sử vé, vé mới nhất trước: giữ tối đa limit vé có mã nhỏ
+ * hơn beforeID và thỏa filter, lấy các mã lớn nhất. Mỗi tầng của lịch sử (tầng
+ * nóng, ColdTicketStore, TicketHistory) đưa vé của mình vào cùng một trang và
+ * bỏ qua phần chỉ chứa mã không thể vào trang nữa (acceptsRange), nên một
+ * trang chỉ đọc phần mới nhất của lịch sử trên đĩa.
+ *
+ * Không tự đồng bộ.
+ */
+class TicketPage {
+    private static final Comparator<Ticket> BY_ID = Comparator.comparingInt(Ticket::getTicketID);
+
+    private final int beforeID;
+    private final int limit;
+    private final Predicate<? super Ticket> filter;
+    // Các vé đang giữ, vé mã nhỏ nhất ở đầu
+    private final PriorityQueue<Ticket> top;
+
+    TicketPage(int beforeID, int limit, Predicate<? super Ticket> filter) {
+        this.beforeID = beforeID;
+        this.limit = Math.max(0, limit);
+        this.filter = filter;
+        this.top = new PriorityQueue<>(Math.max(1, this.limit), BY_ID);
+    }
+
+    // Vé mã ticketID còn có thể vào trang không
+    boolean accepts(int ticketID) {
+        return ticketID < beforeID && (top.size() < limit || limit > 0 && ticketID > top.peek().getTicketID());
+    }
+
+    // Có vé nào với mã trong [minId, maxId] còn có thể vào trang không
+    boolean acceptsRange(int minId, int maxId) {
+        return minId < beforeID && accepts(Math.min(maxId, beforeID - 1));
+    }
+
+    void offer(Ticket ticket) {
+        if (!accepts(ticket.getTicketID()) || filter != null && !filter.test(ticket))
+            return;
+        top.add(ticket);
+        if (top.size() > limit)
+            top.poll();
+    }
+
+    // Các vé của trang theo mã giảm dần
+    ArrayList<Ticket> tickets() {
+        ArrayList<Ticket> tickets = new ArrayList<>(top);
+        tickets.sort(BY_ID.reversed());
+        return tickets;
+    }
+}
@@ -0,0 +1,323 @@
+package logic;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Phân đoạn tháng của lịch sử vé: các vé đã đóng trong một tháng (theo giờ
+ * ra), nén GZIP, không bao giờ bị sửa sau khi ghi xong. Khi ghi lại file vé,
+ * DataManager cuộn các vé đã đóng của những tháng trước ra phân đoạn, file vé
+ * chỉ còn vé chưa ra và vé của tháng hiện tại (xem DataManager.saveTickets).
+ *
+ * File tickets-yyyy-MM.seg, hoặc tickets-yyyy-MM.2.seg, .3.seg... nếu tháng đó
+ * được cuộn thêm lần nữa (vd: vé ra mang giờ của tháng trước khi cổng phát lại
+ * hàng đợi). 40 byte đầu không nén (big-endian): mã nhận dạng, phiên bản, tháng
+ * (yyyyMM), số vé, mã vé nhỏ nhất/lớn nhất, giờ vào sớm nhất/giờ ra muộn nhất
+ * (số giây, xem TimestampCodec). Sau đó là các dòng cùng dạng tickets.csv, nén
+ * GZIP. Chỉ cần đọc phần đầu là biết phân đoạn có thể chứa vé cần tìm hay
+ * không, phần nén chỉ được giải nén khi thật sự cần.
+ *
+ * Đối tượng không đổi, đọc được từ nhiều luồng cùng lúc.
+ */
+class TicketSegment {
+    private static final int MAGIC = 0x504B5331; // "PKS1"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    private static final Pattern NAME = Pattern.compile("tickets-(\\d{4})-(\\d{2})(?:\\.(\\d+))?\\.seg");
+    // Thứ tự trong lịch sử: theo tháng, cùng tháng thì theo lần cuộn
+    static final Comparator<TicketSegment> ORDER = Comparator.comparing(TicketSegment::getMonth)
+            .thenComparingInt(TicketSegment::getPart);
+
+    private final File file;
+    private final Charset charset;
+    private final YearMonth month;
+    private final int part;
+    // Số vé được dùng (có thể ít hơn số vé trong file, xem limit)
+    private final int rows;
+    private final int minId;
+    private final int maxId;
+    private final long minTime;
+    private final long maxTime;
+
+    private TicketSegment(File file, Charset charset, YearMonth month, int part, int rows, int minId, int maxId,
+            long minTime, long maxTime) {
+        this.file = file;
+        this.charset = charset;
+        this.month = month;
+        this.part = part;
+        this.rows = rows;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    YearMonth getMonth() {
+        return month;
+    }
+
+    int getPart() {
+        return part;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getMinId() {
+        return minId;
+    }
+
+    int getMaxId() {
+        return maxId;
+    }
+
+    // Phân đoạn có thể chứa vé mã ticketID không (chỉ xét phần đầu)
+    boolean mayContain(int ticketID) {
+        return ticketID >= minId && ticketID <= maxId;
+    }
+
+    // Phân đoạn có thể chứa vé có mặt trong bãi trong khoảng [from, to) không
+    // (null là không giới hạn)
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return (to == null || minTime <= TimestampCodec.toEpochSecond(to))
+                && (from == null || maxTime >= TimestampCodec.toEpochSecond(from));
+    }
+
+    // Cùng file nhưng chỉ dùng rows vé đầu tiên (vé chép từ lịch sử cũ khi cuộn,
+    // xem DataManager.saveTickets)
+    TicketSegment limit(int rows) {
+        return new TicketSegment(file, charset, month, part, Math.min(rows, this.rows), minId, maxId, minTime,
+                maxTime);
+    }
+
+    // Duyệt các vé theo thứ tự trong file
+    void forEach(Consumer<? super Ticket> action) throws IOException {
+        scan(ticket -> {
+            action.accept(ticket);
+            return true;
+        });
+    }
+
+    // Vé đầu tiên có mã ticketID, null nếu không có (dừng giải nén khi gặp)
+    Ticket findById(int ticketID) throws IOException {
+        if (!mayContain(ticketID))
+            return null;
+        Ticket[] found = new Ticket[1];
+        scan(ticket -> {
+            if (ticket.getTicketID() != ticketID)
+                return true;
+            found[0] = ticket;
+            return false;
+        });
+        return found[0];
+    }
+
+    // Giải nén và đưa lần lượt từng vé cho visitor cho tới khi visitor trả về false
+    private void scan(Predicate<Ticket> visitor) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            readFully(in, new byte[HEADER_SIZE]);
+            CsvTokenizer line = new CsvTokenizer(new GZIPInputStream(in, 1 << 16), charset);
+            int count = 0;
+            while (count < rows && line.nextLine()) {
+                Ticket ticket = MappedTicketReader.readTicket(line);
+                if (ticket == null)
+                    continue;
+                count++;
+                if (!visitor.test(ticket))
+                    return;
+            }
+        }
+    }
+
+    // Tên file của lần cuộn thứ part của tháng month
+    static File fileFor(File dir, YearMonth month, int part) {
+        String name = String.format("tickets-%04d-%02d", month.getYear(), month.getMonthValue());
+        return new File(dir, part == 1 ? name + ".seg" : name + "." + part + ".seg");
+    }
+
+    // Số thứ tự cho lần cuộn tiếp theo của tháng month
+    static int nextPart(List<TicketSegment> segments, YearMonth month) {
+        int part = 0;
+        for (TicketSegment segment : segments) {
+            if (segment.month.equals(month))
+                part = Math.max(part, segment.part);
+        }
+        return part + 1;
+    }
+
+    // Các phân đoạn trong thư mục dir theo thứ tự lịch sử. Chỉ đọc phần đầu của
+    // từng file. Phân đoạn chỉ xuất hiện sau khi đã ghi xong (đổi tên từ file
+    // tạm), nên file hỏng là mất dữ liệu thật: báo lỗi kèm tên file thay vì
+    // âm thầm bỏ qua vé của cả tháng.
+    static ArrayList<TicketSegment> list(File dir, Charset charset) throws IOException {
+        ArrayList<TicketSegment> segments = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> NAME.matcher(name).matches());
+        if (files == null)
+            return segments;
+        for (File file : files) {
+            TicketSegment segment = open(file, charset);
+            if (segment == null)
+                throw new IOException("Phân đoạn vé hỏng: " + file);
+            segments.add(segment);
+        }
+        segments.sort(ORDER);
+        return segments;
+    }
+
+    // Đọc phần đầu của một phân đoạn, null nếu không hợp lệ
+    private static TicketSegment open(File file, Charset charset) {
+        Matcher name = NAME.matcher(file.getName());
+        if (!name.matches())
+            return null;
+        byte[] bytes = new byte[HEADER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            readFully(in, bytes);
+        } catch (IOException e) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            return null;
+        int yearMonth = header.getInt();
+        YearMonth month;
+        int part;
+        try {
+            // Tháng trong tên file phải khớp phần đầu (file bị đổi tên tay thì bỏ qua)
+            month = YearMonth.of(yearMonth / 100, yearMonth % 100);
+            if (!month.equals(YearMonth.of(Integer.parseInt(name.group(1)), Integer.parseInt(name.group(2)))))
+                return null;
+            part = name.group(3) == null ? 1 : Integer.parseInt(name.group(3));
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+        int rows = header.getInt();
+        int minId = header.getInt();
+        int maxId = header.getInt();
+        return new TicketSegment(file, charset, month, part, rows, minId, maxId, header.getLong(), header.getLong());
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0)
+                throw new EOFException();
+            read += n;
+        }
+    }
+
+    /**
+     * Ghi một phân đoạn mới ra file tạm (tên file đích + ".tmp"). Phần đầu được
+     * điền khi finish, lúc đã biết số vé và các khoảng. DataManager đổi tên file
+     * tạm thành file đích sau đó.
+     */
+    static class Writer {
+        private final File target;
+        private final File temp;
+        private final Charset charset;
+        private final YearMonth month;
+        private final int part;
+        private final FileOutputStream file;
+        private final GZIPOutputStream gzip;
+        private final OutputStream out;
+        private int rows;
+        private int minId = Integer.MAX_VALUE;
+        private int maxId = Integer.MIN_VALUE;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+
+        Writer(File dir, YearMonth month, int part, Charset charset) throws IOException {
+            this.target = fileFor(dir, month, part);
+            this.temp = new File(target.getPath() + ".tmp");
+            this.charset = charset;
+            this.month = month;
+            this.part = part;
+            this.file = new FileOutputStream(temp);
+            file.write(new byte[HEADER_SIZE]);
+            this.gzip = new GZIPOutputStream(file, 1 << 16);
+            // Gom dòng trước khi nén: nén từng dòng nhỏ rất chậm
+            this.out = new BufferedOutputStream(gzip, 1 << 16);
+        }
+
+        File getTarget() {
+            return target;
+        }
+
+        File getTemp() {
+            return temp;
+        }
+
+        YearMonth getMonth() {
+            return month;
+        }
+
+        int getRows() {
+            return rows;
+        }
+
+        // Thêm một vé đã đóng
+        void add(Ticket ticket) throws IOException {
+            out.write(ticket.toString().getBytes(charset));
+            out.write('\n');
+            rows++;
+            minId = Math.min(minId, ticket.getTicketID());
+            maxId = Math.max(maxId, ticket.getTicketID());
+            minTime = Math.min(minTime, TimestampCodec.toEpochSecond(ticket.getEntryTime()));
+            maxTime = Math.max(maxTime, TimestampCodec.toEpochSecond(ticket.getExitTime()));
+        }
+
+        // Ghi nốt phần nén, điền phần đầu và ép xuống đĩa. Trả về phân đoạn mô tả
+        // file đích (chưa tồn tại cho tới khi file tạm được đổi tên).
+        TicketSegment finish() throws IOException {
+            try {
+                out.flush();
+                gzip.finish();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(month.getYear() * 100 + month.getMonthValue())
+                        .putInt(rows).putInt(minId).putInt(maxId).putLong(minTime).putLong(maxTime);
+                header.flip();
+                while (header.hasRemaining())
+                    file.getChannel().write(header, header.position());
+                file.getFD().sync();
+            } finally {
+                file.close();
+            }
+            return new TicketSegment(target, charset, month, part, rows, minId, maxId, minTime, maxTime);
+        }
+
+        // Bỏ phân đoạn đang ghi dở (lỗi giữa chừng)
+        void abort() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // bỏ qua
+            }
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package logic;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Mã hóa/giải mã giờ vào/ra của vé nhanh hơn LocalDateTime.parse/toString.
+ *
+ * Dạng chữ: đúng chuỗi LocalDateTime.toString sinh ra (cũng là dạng DataManager
+ * và Journal ghi): yyyy-MM-ddTHH:mm, thêm :ss nếu có giây, thêm .SSS / .SSSSSS
+ * / .SSSSSSSSS nếu có phần lẻ; "null" là không có giờ. Khi đọc, dạng chuẩn
+ * này (phần lẻ 1-9 chữ số) được tách trực tiếp bằng vị trí ký tự; dạng khác
+ * (năm ngoài 0000-9999, ngày không hợp lệ...) được chuyển cho LocalDateTime.parse
+ * để kết quả và lỗi (DateTimeParseException) giống hệt trước đây.
+ *
+ * Dạng số: số giây hoặc nano giây tính từ 1970-01-01T00:00 (giờ địa phương,
+ * không múi giờ), NO_TIME thay cho null. Dùng cho file vé nhị phân
+ * (BinaryTicketFile) và tầng lạnh (ColdTicketStore).
+ */
+public final class TimestampCodec {
+    // Giá trị dạng số thay cho giờ null
+    public static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+    // Độ dài chuỗi dài nhất của dạng chuẩn (có 9 chữ số phần lẻ)
+    private static final int MAX_LENGTH = 29;
+
+    private TimestampCodec() {
+    }
+
+    // Ghi giờ vào sb, giống sb.append(time)
+    public static StringBuilder append(StringBuilder sb, LocalDateTime time) {
+        if (time == null)
+            return sb.append("null");
+        char[] chars = new char[MAX_LENGTH];
+        int length = encode(time, chars);
+        return length < 0 ? sb.append(time) : sb.append(chars, 0, length);
+    }
+
+    // Giống String.valueOf(time)
+    public static String format(LocalDateTime time) {
+        if (time == null)
+            return "null";
+        char[] chars = new char[MAX_LENGTH];
+        int length = encode(time, chars);
+        return length < 0 ? time.toString() : new String(chars, 0, length);
+    }
+
+    // Ghi dạng chữ của time vào chars, trả về số ký tự; -1 nếu năm ngoài
+    // 0000-9999 (có dấu/hơn 4 chữ số: để JDK định dạng)
+    private static int encode(LocalDateTime time, char[] chars) {
+        int year = time.getYear();
+        if (year < 0 || year > 9999)
+            return -1;
+        put4(chars, 0, year);
+        chars[4] = '-';
+        put2(chars, 5, time.getMonthValue());
+        chars[7] = '-';
+        put2(chars, 8, time.getDayOfMonth());
+        chars[10] = 'T';
+        put2(chars, 11, time.getHour());
+        chars[13] = ':';
+        put2(chars, 14, time.getMinute());
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second == 0 && nano == 0)
+            return 16;
+        chars[16] = ':';
+        put2(chars, 17, second);
+        if (nano == 0)
+            return 19;
+        chars[19] = '.';
+        // Như LocalTime.toString: 3, 6 hoặc 9 chữ số phần lẻ
+        if (nano % 1_000_000 == 0) {
+            putDigits(chars, 20, 3, nano / 1_000_000);
+            return 23;
+        }
+        if (nano % 1000 == 0) {
+            putDigits(chars, 20, 6, nano / 1000);
+            return 26;
+        }
+        putDigits(chars, 20, 9, nano);
+        return 29;
+    }
+
+    // Giống LocalDateTime.parse(text), riêng "null" trả về null
+    public static LocalDateTime parse(CharSequence text) {
+        int length = text.length();
+        if (length == 4 && text.charAt(0) == 'n' && text.charAt(1) == 'u' && text.charAt(2) == 'l'
+                && text.charAt(3) == 'l')
+            return null;
+        if (length >= 16 && length <= MAX_LENGTH && text.charAt(4) == '-' && text.charAt(7) == '-'
+                && text.charAt(10) == 'T' && text.charAt(13) == ':') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = 0;
+            int nano = 0;
+            boolean valid = year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0;
+            if (valid && length > 16) {
+                valid = length >= 19 && text.charAt(16) == ':';
+                if (valid)
+                    second = digits(text, 17, 2);
+                if (valid && length > 19) {
+                    valid = length >= 21 && text.charAt(19) == '.';
+                    if (valid) {
+                        int fraction = digits(text, 20, length - 20);
+                        valid = fraction >= 0;
+                        nano = fraction;
+                        for (int i = length - 20; i < 9; i++)
+                            nano *= 10;
+                    }
+                }
+                valid &= second >= 0;
+            }
+            if (valid) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                } catch (DateTimeException e) {
+                    // ngoài khoảng hợp lệ: để LocalDateTime.parse báo lỗi đúng kiểu
+                }
+            }
+        }
+        return LocalDateTime.parse(text);
+    }
+
+    // Số giây từ 1970-01-01T00:00 (bỏ phần lẻ), NO_TIME nếu null
+    public static long toEpochSecond(LocalDateTime time) {
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromEpochSecond(long seconds) {
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    // Số nano giây từ 1970-01-01T00:00 (đủ cho khoảng năm 1677-2262), NO_TIME nếu null
+    public static long toEpochNano(LocalDateTime time) {
+        if (time == null)
+            return NO_TIME;
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    public static LocalDateTime fromEpochNano(long nanos) {
+        if (nanos == NO_TIME)
+            return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    // Giá trị của count chữ số ASCII bắt đầu tại start, -1 nếu có ký tự khác
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+                return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void put2(char[] chars, int at, int value) {
+        chars[at] = (char) ('0' + value / 10);
+        chars[at + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put4(char[] chars, int at, int value) {
+        put2(chars, at, value / 100);
+        put2(chars, at + 2, value % 100);
+    }
+
+    // count chữ số cuối của value (thêm số 0 phía trước nếu thiếu)
+    private static void putDigits(char[] chars, int at, int count, int value) {
+        for (int i = at + count - 1; i >= at; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
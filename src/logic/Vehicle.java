@@ -17,6 +17,9 @@ public class Vehicle {
     public static String chuanHoaHoTen(String hoTen) {
         if (hoTen == null)
             return "";
+        // Tên đọc lại từ file đã được chuẩn hóa từ trước: trả về luôn, không tạo chuỗi mới
+        if (daChuanHoaHoTen(hoTen))
+            return hoTen;
         String trimmed = hoTen.trim();
         if (trimmed.isEmpty())
             return "";
@@ -34,7 +37,43 @@ public class Vehicle {
 
     // Hàm chuẩn hóa số điện thoại (bỏ dấu cách)
     public static String chuanHoaSoDienThoai(String soDienThoai) {
-        return soDienThoai.replaceAll("\\s+", "");
+        for (int i = 0; i < soDienThoai.length(); i++) {
+            if (laKhoangTrang(soDienThoai.charAt(i)))
+                return soDienThoai.replaceAll("\\s+", "");
+        }
+        return soDienThoai; // không có khoảng trắng: giữ nguyên
+    }
+
+    // hoTen đã đúng dạng chuanHoaHoTen trả về chưa: không có khoảng trắng
+    // đầu/cuối, các từ cách nhau đúng 1 dấu cách, chữ đầu mỗi từ viết hoa, các
+    // chữ còn lại viết thường. Ký tự đặc biệt (cặp surrogate) thì coi như chưa.
+    private static boolean daChuanHoaHoTen(String hoTen) {
+        int n = hoTen.length();
+        if (n == 0 || hoTen.charAt(0) <= ' ' || hoTen.charAt(n - 1) <= ' ')
+            return false;
+        boolean dauTu = true;
+        for (int i = 0; i < n; i++) {
+            char c = hoTen.charAt(i);
+            if (c == ' ') {
+                if (dauTu)
+                    return false; // 2 dấu cách liền nhau
+                dauTu = true;
+            } else if (laKhoangTrang(c) || Character.isSurrogate(c)) {
+                return false;
+            } else if (dauTu) {
+                if (Character.toUpperCase(c) != c)
+                    return false;
+                dauTu = false;
+            } else if (Character.toLowerCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Khoảng trắng theo \s của biểu thức chính quy
+    private static boolean laKhoangTrang(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     // Getter/Setter